@@ -0,0 +1,149 @@
+package benchmarks;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+// JMH benchmarks for the ordering hot paths: Cart.calculateTotalCost, pricing an
+// Order, Restaurant.processOrder and processOrders, MenuItem.findMenuItem and
+// Customer.loadCustomers. Throughput and sampled latency percentiles are
+// reported for every combination of the parameters.
+//
+// The application classes live in the unnamed package and JMH only accepts
+// benchmarks in a named one, so the operations are built by the in-tree
+// Benchmark class, which is looked up by name once per trial. The measured
+// call is a plain Supplier.get(), and its result goes to JMH's blackhole.
+//
+// Build with "mvn package" from the top-level directory, then run
+//   java -jar benchmarks/target/benchmarks.jar -t 4 -prof gc
+// where -t sets the thread count, -prof gc reports the allocation rate, and
+// -p menuSize=10,1000 (and so on) overrides the parameters.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderingBenchmarks {
+
+    // Benchmarks over a restaurant's menu and one cart per thread
+    @State(Scope.Benchmark)
+    public static class MenuPaths {
+        @Param({"cart", "order", "process", "batch", "find"})
+        public String path;
+
+        @Param({"10", "1000"})
+        public int menuSize;
+
+        @Param({"5", "50"})
+        public int cartSize;
+
+        private Object harness;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            harness = openHarness(path, menuSize, cartSize, 0);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            call(harness, "tearDown");
+        }
+    }
+
+    // Loading the customers file
+    @State(Scope.Benchmark)
+    public static class LoadPath {
+        @Param({"100000"})
+        public int memberCount;
+
+        private Object harness;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            harness = openHarness("load", 1, 1, memberCount);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            call(harness, "tearDown");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MenuOperation {
+        private Supplier<Object> operation;
+
+        @Setup(Level.Trial)
+        public void setUp(MenuPaths paths, ThreadParams thread) {
+            operation = createOperation(paths.harness, thread.getThreadIndex());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class LoadOperation {
+        private Supplier<Object> operation;
+
+        @Setup(Level.Trial)
+        public void setUp(LoadPath load, ThreadParams thread) {
+            operation = createOperation(load.harness, thread.getThreadIndex());
+        }
+    }
+
+    @Benchmark
+    public Object menu(MenuOperation menuOperation) {
+        return menuOperation.operation.get();
+    }
+
+    @Benchmark
+    public Object load(LoadOperation loadOperation) {
+        return loadOperation.operation.get();
+    }
+
+    // Method to build and set up the in-tree Benchmark for one path
+    private static Object openHarness(String path, int menuSize, int cartSize, int memberCount) {
+        try {
+            Constructor<?> constructor = Class.forName("Benchmark")
+                    .getConstructor(String.class, int.class, int.class, int.class, int.class);
+            Object harness = constructor.newInstance(path, menuSize, cartSize, memberCount, 1);
+            call(harness, "setUp");
+            return harness;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot open the benchmark for " + path, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> createOperation(Object harness, int thread) {
+        try {
+            return (Supplier<Object>) harness.getClass().getMethod("createOperation", int.class).invoke(harness, thread);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create the benchmark operation", e);
+        }
+    }
+
+    private static void call(Object harness, String method) {
+        try {
+            harness.getClass().getMethod(method).invoke(harness);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(method + " failed", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot call " + method, e);
+        }
+    }
+}
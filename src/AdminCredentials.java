@@ -0,0 +1,166 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Admin logins checked against an in-memory copy of the credentials file. The
+// passwords are kept only as salted SHA-256 hashes and compared in constant
+// time. A username may appear on several lines, and any of its passwords is
+// accepted. The file is read once and again only after it changes, and a burst
+// of logins looks at its timestamp at most once per interval.
+public class AdminCredentials {
+    private static final long RELOAD_CHECK_INTERVAL_NANOS = 1_000_000_000L;
+    private static final int SALT_BYTES = 16;
+
+    private final Path path;
+    private final SecureRandom random;
+    // Hashed against when the username is unknown, so that case takes as long as a wrong password
+    private final List<StoredPassword> unknownUser;
+    private volatile Credentials credentials;
+    private volatile long nextCheckNanos;
+
+    // Constructor
+    public AdminCredentials(String filename) {
+        this.path = Paths.get(filename);
+        this.random = new SecureRandom();
+        this.unknownUser = List.of(hash(""));
+    }
+
+    // Method to check a username and password, reloading the file first if it has changed
+    public boolean check(String username, String password) {
+        Credentials current = current();
+        List<StoredPassword> stored = current.passwords.get(username);
+        boolean known = stored != null;
+        if (!known) {
+            stored = unknownUser;
+        }
+        // Every password for the username is compared, so the time taken does not show which one matched
+        boolean matched = false;
+        for (StoredPassword storedPassword : stored) {
+            matched |= MessageDigest.isEqual(digest(storedPassword.salt, password), storedPassword.hash);
+        }
+        return matched & known;
+    }
+
+    // Method to get the loaded credentials, looking at the file only once per interval
+    private Credentials current() {
+        Credentials current = credentials;
+        long now = System.nanoTime();
+        if (current != null && now - nextCheckNanos < 0) {
+            return current;
+        }
+        synchronized (this) {
+            current = credentials;
+            if (current != null && now - nextCheckNanos < 0) {
+                return current;
+            }
+            FileStamp stamp = FileStamp.of(path);
+            if (current == null || !stamp.equals(current.stamp)) {
+                current = load(stamp);
+                credentials = current;
+            }
+            nextCheckNanos = now + RELOAD_CHECK_INTERVAL_NANOS;
+            return current;
+        }
+    }
+
+    // Method to read "username,password" lines into salted hashes, keeping every line for a username
+    // because the file used to be scanned per login and any matching line let the admin in
+    private Credentials load(FileStamp stamp) {
+        Map<String, List<StoredPassword>> passwords = new HashMap<>();
+        try {
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                String[] credentials = line.split(",");
+                if (credentials.length == 2) {
+                    String storedUsername = credentials[0].trim();
+                    passwords.computeIfAbsent(storedUsername, key -> new ArrayList<>()).add(hash(credentials[1].trim()));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new Credentials(stamp, passwords);
+    }
+
+    private StoredPassword hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        return new StoredPassword(salt, digest(salt, password));
+    }
+
+    private static byte[] digest(byte[] salt, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Salt and hash of one password
+    private static class StoredPassword {
+        private final byte[] salt;
+        private final byte[] hash;
+
+        StoredPassword(byte[] salt, byte[] hash) {
+            this.salt = salt;
+            this.hash = hash;
+        }
+    }
+
+    // Passwords by username and the state of the file they were read from
+    private static class Credentials {
+        private final FileStamp stamp;
+        private final Map<String, List<StoredPassword>> passwords;
+
+        Credentials(FileStamp stamp, Map<String, List<StoredPassword>> passwords) {
+            this.stamp = stamp;
+            this.passwords = passwords;
+        }
+    }
+
+    // Modification time and size of the file, or of a missing file
+    private static class FileStamp {
+        private final long modifiedMillis;
+        private final long size;
+
+        FileStamp(long modifiedMillis, long size) {
+            this.modifiedMillis = modifiedMillis;
+            this.size = size;
+        }
+
+        static FileStamp of(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new FileStamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+            } catch (NoSuchFileException e) {
+                return new FileStamp(-1, -1);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return new FileStamp(-1, -1);
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof FileStamp stamp && stamp.modifiedMillis == modifiedMillis && stamp.size == size;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(modifiedMillis) * 31 + Long.hashCode(size);
+        }
+    }
+}
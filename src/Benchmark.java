@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Micro-benchmarks for the ordering hot paths. Each benchmark runs on the given
+// number of threads for a warm-up period and then a measured period, and
+// reports throughput, latency percentiles and bytes allocated per operation.
+//
+// The batch benchmark checks out BATCH_CARTS carts per operation.
+//
+// Usage: java Benchmark [--bench cart,order,process,batch,find,load] [--menu 10,1000]
+//        [--cart 5,50] [--members 100000] [--threads 1,4] [--warmup 2] [--seconds 5]
+//
+// The JMH module under benchmarks/ runs the same operations through setUp,
+// createOperation and tearDown.
+public class Benchmark {
+    private static final PrintStream REPORT = System.out;
+    private static final int BATCH_CARTS = 100;
+
+    // Every result is compared with these, which no operation returns, so the JIT cannot drop the work behind it
+    private static volatile Object sinkFirst = new Object();
+    private static volatile Object sinkSecond = new Object();
+
+    private final String name;
+    private final int menuSize;
+    private final int cartSize;
+    private final int memberCount;
+    private final int threads;
+    private Restaurant restaurant;
+    private Path customersFile;
+
+    // Constructor
+    public Benchmark(String name, int menuSize, int cartSize, int memberCount, int threads) {
+        this.name = name;
+        this.menuSize = menuSize;
+        this.cartSize = cartSize;
+        this.memberCount = memberCount;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] benches = {"cart", "order", "process", "batch", "find", "load"};
+        int[] menuSizes = {10, 1000};
+        int[] cartSizes = {5, 50};
+        int[] memberCounts = {100000};
+        int[] threadCounts = {1, Runtime.getRuntime().availableProcessors()};
+        int warmupSeconds = 2;
+        int measureSeconds = 5;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--bench" -> benches = value.split(",");
+                case "--menu" -> menuSizes = parseList(value);
+                case "--cart" -> cartSizes = parseList(value);
+                case "--members" -> memberCounts = parseList(value);
+                case "--threads" -> threadCounts = parseList(value);
+                case "--warmup" -> warmupSeconds = Integer.parseInt(value);
+                case "--seconds" -> measureSeconds = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        REPORT.printf("%-8s %6s %6s %8s %7s %14s %12s %12s %12s %12s%n",
+                "bench", "menu", "cart", "members", "threads", "ops/s", "p50 ns", "p99 ns", "p99.9 ns", "bytes/op");
+        for (String bench : benches) {
+            // Only sweep the parameters the benchmark depends on
+            boolean usesMenu = !bench.equals("load");
+            boolean usesCart = usesMenu && !bench.equals("find");
+            boolean usesMembers = bench.equals("load");
+            for (int threads : threadCounts) {
+                for (int menuSize : usesMenu ? menuSizes : new int[] {1}) {
+                    for (int cartSize : usesCart ? cartSizes : new int[] {1}) {
+                        for (int memberCount : usesMembers ? memberCounts : new int[] {0}) {
+                            new Benchmark(bench, menuSize, cartSize, memberCount, threads).run(warmupSeconds, measureSeconds);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int[] parseList(String value) {
+        String[] parts = value.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    // Method to build the restaurant, and for the load benchmark the customers file, that every thread shares
+    public void setUp() {
+        // The ordering code prints as it goes; keep that out of the measurements and the report
+        Console.setDefaultSinks(() -> Console.NO_OP);
+        restaurant = createRestaurant(menuSize);
+        customersFile = name.equals("load") ? createCustomersFile(memberCount) : null;
+    }
+
+    // Method to remove what setUp created on disk
+    public void tearDown() throws IOException {
+        if (customersFile != null) {
+            Files.deleteIfExists(customersFile);
+        }
+    }
+
+    // Method to warm up, measure and report one benchmark configuration
+    public void run(int warmupSeconds, int measureSeconds) throws Exception {
+        setUp();
+        try {
+            measure(warmupSeconds, null);
+            LatencyHistogram histogram = new LatencyHistogram();
+            AtomicLong allocatedBytes = new AtomicLong();
+            long elapsedNanos = measure(measureSeconds, histogram, allocatedBytes);
+
+            long operations = histogram.getCount();
+            REPORT.printf("%-8s %6d %6d %8d %7d %14.0f %12d %12d %12d %12s%n",
+                    name, menuSize, cartSize, memberCount, threads,
+                    operations * 1_000_000_000.0 / elapsedNanos,
+                    histogram.getPercentile(50), histogram.getPercentile(99), histogram.getPercentile(99.9),
+                    allocatedBytes.get() < 0 ? "n/a" : Long.toString(allocatedBytes.get() / Math.max(1, operations)));
+        } finally {
+            tearDown();
+        }
+    }
+
+    private long measure(int seconds, LatencyHistogram histogram) throws Exception {
+        return measure(seconds, histogram, new AtomicLong());
+    }
+
+    // Method to run the operation on every thread until the deadline; returns the elapsed time
+    private long measure(int seconds, LatencyHistogram histogram, AtomicLong allocatedBytes) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] deadline = new long[1];
+
+        for (int t = 0; t < threads; t++) {
+            Supplier<Object> operation = createOperation(t);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    long allocatedBefore = allocatedBytes();
+                    while (System.nanoTime() < deadline[0]) {
+                        long begin = System.nanoTime();
+                        consume(operation.get());
+                        long latency = System.nanoTime() - begin;
+                        if (histogram != null) {
+                            histogram.record(latency);
+                        }
+                    }
+                    long allocatedAfter = allocatedBytes();
+                    allocatedBytes.accumulateAndGet(allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore,
+                            (sum, bytes) -> sum < 0 || bytes < 0 ? -1 : sum + bytes);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "benchmark-" + t);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        deadline[0] = begin + seconds * 1_000_000_000L;
+        start.countDown();
+        done.await();
+        return System.nanoTime() - begin;
+    }
+
+    // Method to use a result the way a JMH blackhole does: two volatile reads, and a branch that is never taken
+    private static void consume(Object result) {
+        if (result == sinkFirst && result == sinkSecond) {
+            throw new IllegalStateException("A benchmark returned its own sink.");
+        }
+    }
+
+    // Method to build the operation one worker thread measures; its result must be consumed
+    public Supplier<Object> createOperation(int thread) {
+        List<MenuItem> menu = restaurant.getMenu();
+        Cart cart = new Cart();
+        for (int i = 0; i < cartSize; i++) {
+            cart.addItem(new CartItem(menu.get((i * 7 + thread) % menu.size()), 1));
+        }
+        Customer customer = new Customer("B" + thread, "Benchmark " + thread, "0", "Benchmark");
+        String[] names = new String[menu.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = menu.get(i).getItemName().toUpperCase();
+        }
+
+        return switch (name) {
+            case "cart" -> {
+                // The total goes into an array the caller sees, so it is neither boxed nor thrown away
+                long[] total = new long[1];
+                yield () -> {
+                    total[0] = cart.calculateTotalCost();
+                    return total;
+                };
+            }
+            case "order" -> () -> new Order(customer, restaurant, cart.getItems());
+            case "process" -> () -> {
+                Order order = restaurant.processOrder(customer, cart, null);
+                if (order != null) {
+                    // Put the stock back so the benchmark never runs dry
+                    for (CartItem item : cart.getItems()) {
+                        restaurant.updateInventory(item.getMenuItem(), item.getQuantity());
+                    }
+                }
+                return order;
+            };
+            case "batch" -> {
+                List<Customer> customers = new ArrayList<>(BATCH_CARTS);
+                List<Cart> carts = new ArrayList<>(BATCH_CARTS);
+                for (int i = 0; i < BATCH_CARTS; i++) {
+                    customers.add(customer);
+                    carts.add(cart);
+                }
+                yield () -> {
+                    List<Order> orders = restaurant.processOrders(customers, carts, null);
+                    for (Order order : orders) {
+                        if (order != null) {
+                            for (CartItem item : order.getItems()) {
+                                restaurant.updateInventory(item.getMenuItem(), item.getQuantity());
+                            }
+                        }
+                    }
+                    return orders;
+                };
+            }
+            case "find" -> new Supplier<Object>() {
+                private int next;
+
+                @Override
+                public Object get() {
+                    MenuItem menuItem = MenuItem.findMenuItem(restaurant, names[next]);
+                    next = next + 1 == names.length ? 0 : next + 1;
+                    return menuItem;
+                }
+            };
+            case "load" -> () -> {
+                CustomerMap customerMap = new CustomerMap();
+                Customer.loadCustomers(customersFile.toString(), customerMap);
+                return customerMap;
+            };
+            default -> throw new IllegalArgumentException("Unknown benchmark: " + name);
+        };
+    }
+
+    private static Restaurant createRestaurant(int menuSize) {
+        Restaurant restaurant = new Restaurant("Benchmark Restaurant");
+        for (int i = 0; i < menuSize; i++) {
+            MenuItem menuItem = i % 3 == 0
+                    ? new DrinkItem("Drink " + i, 290 + i % 10 * 100, "Benchmark drink", "Soft Drink")
+                    : new FoodItem("Dish " + i, 990 + i % 10 * 100, "Benchmark dish", "Western");
+            restaurant.addToMenu(menuItem, 1_000_000);
+        }
+        restaurant.addSpecialOffer(new SpecialOffer("10% Off on All Soft Drink", 10.0, "Soft Drink"));
+        return restaurant;
+    }
+
+    private static Path createCustomersFile(int memberCount) {
+        try {
+            Path file = Files.createTempFile("benchmark-customers", ".txt");
+            StringBuilder records = new StringBuilder();
+            for (int i = 0; i < memberCount; i++) {
+                records.append(i).append(",Member ").append(i).append(",0123456789,No ").append(i).append(" Jalan Benchmark\n");
+            }
+            Files.writeString(file, records);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Bytes allocated so far by the calling thread, or -1 where the JVM cannot tell
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean
+                && threadBean.isThreadAllocatedMemoryEnabled()) {
+            return threadBean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
@@ -1,84 +1,132 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-public class Cart implements IItemOperations{
-    private List<CartItem> items;
+public class Cart implements IItemOperations, IPriceListener {
+    // One line per menu item, in the order items were first added
+    private Map<MenuItem, CartItem> lines;
+    private Collection<CartItem> items;
+    private long totalCost;
 
     // Constructor
     public Cart() {
-        this.items = new ArrayList<>();
+        this.lines = new LinkedHashMap<>();
+        this.items = Collections.unmodifiableCollection(lines.values());
     }
 
 
     // Getters and Setters
-    public List<CartItem> getItems() {
+    public Collection<CartItem> getItems() {
         return items;
     }
 
+    // Method to get the quantity of an item in the cart
+    public synchronized int getQuantity(MenuItem menuItem) {
+        CartItem line = lines.get(menuItem);
+        return line == null ? 0 : line.getQuantity();
+    }
+
     // Interface methods to add item into cart
     @Override
-    public void addItem(Object item) {
+    public synchronized void addItem(Object item) {
         if (item instanceof CartItem) {
-            items.add((CartItem) item);
+            adjust(((CartItem) item).getMenuItem(), ((CartItem) item).getQuantity());
         } else {
             // Optionally handle the error or log it
-            System.out.println("Invalid item type. Only CartItem instances can be added.");
+            Console.println("Invalid item type. Only CartItem instances can be added.");
         }
     }
 
     // Interface methods to remove item from cart
     @Override
-    public void removeItem(Object item) {
-        if (item instanceof CartItem && items.contains(item)) {
-            items.remove(item);
+    public synchronized void removeItem(Object item) {
+        if (item instanceof CartItem && isRemovable((CartItem) item)) {
+            adjust(((CartItem) item).getMenuItem(), -((CartItem) item).getQuantity());
         } else {
             // Optionally handle the error or log it
-            System.out.println("Invalid item type or item not found in the cart.");
+            Console.println("Invalid item type or item not found in the cart.");
         }
     }
 
     // Interface methods to update item in the cart
     @Override
-    public void updateItem(Object oldItem, Object newItem) {
+    public synchronized void updateItem(Object oldItem, Object newItem) {
         if (oldItem instanceof CartItem && newItem instanceof CartItem) {
-            int index = items.indexOf(oldItem);
-            if (index != -1) {
-                items.set(index, (CartItem) newItem);
+            if (isRemovable((CartItem) oldItem)) {
+                adjust(((CartItem) oldItem).getMenuItem(), -((CartItem) oldItem).getQuantity());
+                adjust(((CartItem) newItem).getMenuItem(), ((CartItem) newItem).getQuantity());
             } else {
                 // Optionally handle the error or log it
-                System.out.println("Item to be updated not found in the cart.");
+                Console.println("Item to be updated not found in the cart.");
             }
         } else {
             // Optionally handle the error or log it
-            System.out.println("Invalid item type for updating.");
+            Console.println("Invalid item type for updating.");
         }
     }
 
-    // Method to calculate total cost in the cart
-    public double calculateTotalCost() {
-        double totalCost = 0.0;
-        for (CartItem cartItem : items) {
-            totalCost += cartItem.getMenuItem().getPrice() * cartItem.getQuantity();
+    // Reprice hook: moves the running total to the item's current price. Each line remembers the price
+    // it is charged at, so a change that adjust() has already applied is not counted a second time.
+    @Override
+    public synchronized void priceChanged(MenuItem menuItem, long oldPrice, long newPrice) {
+        CartItem line = lines.get(menuItem);
+        if (line != null) {
+            reprice(line);
         }
+    }
+
+    // Method to bring a line's share of the running total to the item's current price
+    private void reprice(CartItem line) {
+        long price = line.getMenuItem().getPrice();
+        totalCost += (price - line.getChargedPrice()) * line.getQuantity();
+        line.setChargedPrice(price);
+    }
+
+    private boolean isRemovable(CartItem item) {
+        CartItem line = lines.get(item.getMenuItem());
+        return line != null && line.getQuantity() >= item.getQuantity();
+    }
+
+    // Method to change the quantity of an item's line, merging adds and dropping the line at zero
+    private void adjust(MenuItem menuItem, int quantity) {
+        CartItem line = lines.get(menuItem);
+        if (line == null) {
+            line = new CartItem(menuItem, 0);
+            lines.put(menuItem, line);
+            menuItem.addPriceListener(this);
+        }
+        // The units already in the line move to the current price first, so the whole line is charged at one price
+        reprice(line);
+        line.addQuantity(quantity);
+        totalCost += line.getChargedPrice() * quantity;
+        if (line.getQuantity() <= 0) {
+            lines.remove(menuItem);
+            menuItem.removePriceListener(this);
+        }
+    }
+
+    // Method to calculate total cost in the cart
+    public synchronized long calculateTotalCost() {
         return totalCost;
     }
 
     // Method to display the cart contents
     public void displayCartContents() {
         if (items.isEmpty()) {
-            System.out.println("-----------------------------------");
-            System.out.println("Your cart is empty.");
-            System.out.println("-----------------------------------");
+            Console.println("-----------------------------------");
+            Console.println("Your cart is empty.");
+            Console.println("-----------------------------------");
             return;
         }
 
-        System.out.println("-----------------------------------");
-        System.out.println("Cart Contents:");
+        Console.println("-----------------------------------");
+        Console.println("Cart Contents:");
         for (CartItem item : items) {
-            String formattedPrice = String.format("%.2f", item.getMenuItem().getPrice() * item.getQuantity());
-            System.out.println(item.getQuantity() + " x " + item.getMenuItem().getItemName() + " - $" + formattedPrice);
+            String formattedPrice = Money.format(item.getSubtotal());
+            Console.println(item.getQuantity() + " x " + item.getMenuItem().getItemName() + " - $" + formattedPrice);
         }
-        System.out.println("Total Cost: $" + String.format("%.2f", calculateTotalCost()));
-        System.out.println("-----------------------------------");
+        Console.println("Total Cost: $" + Money.format(calculateTotalCost()));
+        Console.println("-----------------------------------");
     }
 }
@@ -1,6 +1,7 @@
 public class CartItem {
     private MenuItem menuItem;
     private int quantity;
+    private long chargedPrice; // in cents, the unit price the cart's running total holds this line at
 
     public CartItem(MenuItem menuItem, int quantity) {
         this.menuItem = menuItem;
@@ -15,4 +16,21 @@ public class CartItem {
     public int getQuantity() {
         return quantity;
     }
+
+    // Used by the cart to merge repeated adds of the same item into one line
+    void addQuantity(int quantity) {
+        this.quantity += quantity;
+    }
+
+    long getChargedPrice() {
+        return chargedPrice;
+    }
+    void setChargedPrice(long chargedPrice) {
+        this.chargedPrice = chargedPrice;
+    }
+
+    // Method to get the line's cost at the item's current price
+    public long getSubtotal() {
+        return menuItem.getPrice() * quantity;
+    }
 }
\ No newline at end of file
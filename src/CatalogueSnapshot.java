@@ -0,0 +1,203 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Binary snapshot of every restaurant with its menu, stock and offers.
+//
+// Layout, big-endian: magic "FBCS", format version, restaurant count, then per
+// restaurant its ID, name, item count, items and offers. An item is a type
+// byte ('F' or 'D'), name, price in cents, description, cuisine or beverage
+// type and stock. An offer is its description, discount, category, priority
+// and stacking flag. Strings are a byte length followed by UTF-8, with -1 for
+// null.
+public class CatalogueSnapshot {
+    private static final int MAGIC = 0x46424353; // "FBCS"
+    private static final int FORMAT_VERSION = 1;
+    private static final byte FOOD_ITEM = 'F';
+    private static final byte DRINK_ITEM = 'D';
+
+    private CatalogueSnapshot() {
+    }
+
+    // Method to write the catalogue to a temporary file and move it over the snapshot in one step
+    public static synchronized void save(RestaurantRegistry restaurants, String filename) {
+        Path snapshotPath = Paths.get(filename);
+        Path temporaryPath = Paths.get(filename + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporaryPath.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            List<Restaurant> listed = restaurants.list();
+            out.writeInt(listed.size());
+            for (Restaurant restaurant : listed) {
+                writeRestaurant(out, restaurant);
+            }
+            out.flush();
+            file.getChannel().force(true);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        try {
+            Files.move(temporaryPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void writeRestaurant(DataOutputStream out, Restaurant restaurant) throws IOException {
+        out.writeInt(restaurant.getRestaurantId());
+        writeString(out, restaurant.getRestaurantName());
+
+        // On-hand stock is saved, so units held at a confirmation prompt are not lost if the process dies
+        // before it saves again; abandoned reservations are given back first so they are not counted
+        restaurant.releaseExpiredReservations();
+        Map<MenuItem, Integer> held = restaurant.getHeldStock();
+        MenuSnapshot menu = restaurant.getMenuSnapshot();
+        out.writeInt(menu.getItems().size());
+        for (MenuItem menuItem : menu.getItems()) {
+            if (menuItem instanceof FoodItem foodItem) {
+                out.writeByte(FOOD_ITEM);
+                writeMenuItem(out, menuItem);
+                writeString(out, foodItem.getCuisineType());
+            } else if (menuItem instanceof DrinkItem drinkItem) {
+                out.writeByte(DRINK_ITEM);
+                writeMenuItem(out, menuItem);
+                writeString(out, drinkItem.getBeverageType());
+            } else {
+                throw new IOException("Unknown menu item type: " + menuItem.getClass().getName());
+            }
+            out.writeInt(restaurant.getStock(menuItem) + held.getOrDefault(menuItem, 0));
+        }
+
+        List<SpecialOffer> offers = restaurant.getSpecialOffers();
+        out.writeInt(offers.size());
+        for (SpecialOffer offer : offers) {
+            writeString(out, offer.getOfferDescription());
+            out.writeDouble(offer.getDiscount());
+            writeString(out, offer.getCategory());
+            out.writeInt(offer.getPriority());
+            out.writeBoolean(offer.isStackable());
+        }
+    }
+
+    private static void writeMenuItem(DataOutputStream out, MenuItem menuItem) throws IOException {
+        writeString(out, menuItem.getItemName());
+        out.writeLong(menuItem.getPrice());
+        writeString(out, menuItem.getDescription());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Method to map the snapshot and rebuild the restaurants from it; null if there is no snapshot
+    public static RestaurantRegistry load(String filename) {
+        Path snapshotPath = Paths.get(filename);
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(snapshotPath)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 12 || in.getInt() != MAGIC) {
+                throw new IOException(filename + " is not a catalogue snapshot");
+            }
+            int version = in.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException(filename + " has unsupported catalogue format version " + version);
+            }
+
+            RestaurantRegistry restaurants = new RestaurantRegistry();
+            int restaurantCount = in.getInt();
+            int itemCount = 0;
+            for (int i = 0; i < restaurantCount; i++) {
+                Restaurant restaurant = readRestaurant(in);
+                itemCount += restaurant.getMenu().size();
+                if (!restaurants.add(restaurant)) {
+                    throw new IOException(filename + " holds two restaurants named " + restaurant.getRestaurantName());
+                }
+            }
+
+            double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+            Console.println(String.format("Loaded %d restaurants and %d menu items in %.1f ms", restaurantCount, itemCount, elapsedMillis));
+            return restaurants;
+        } catch (IOException | RuntimeException e) {
+            // A torn or foreign file must not stop the system from starting with the default catalogue
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static Restaurant readRestaurant(ByteBuffer in) throws IOException {
+        int restaurantId = in.getInt();
+        Restaurant restaurant = new Restaurant(readString(in));
+        restaurant.setRestaurantId(restaurantId);
+
+        int itemCount = in.getInt();
+        List<MenuItem> menu = new ArrayList<>(itemCount);
+        int[] stock = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            byte type = in.get();
+            String itemName = readString(in);
+            long price = in.getLong();
+            String description = readString(in);
+            String itemType = readString(in);
+            MenuItem menuItem;
+            if (type == FOOD_ITEM) {
+                menuItem = new FoodItem(itemName, price, description, itemType);
+            } else if (type == DRINK_ITEM) {
+                menuItem = new DrinkItem(itemName, price, description, itemType);
+            } else {
+                throw new IOException("Unknown menu item type: " + (char) type);
+            }
+            menu.add(menuItem);
+            stock[i] = in.getInt();
+        }
+        // The whole menu is published at once rather than copied item by item
+        restaurant.setMenu(menu);
+        for (int i = 0; i < itemCount; i++) {
+            restaurant.updateInventory(menu.get(i), stock[i]);
+        }
+
+        int offerCount = in.getInt();
+        for (int i = 0; i < offerCount; i++) {
+            String offerDescription = readString(in);
+            double discount = in.getDouble();
+            String category = readString(in);
+            int priority = in.getInt();
+            boolean stackable = in.get() != 0;
+            restaurant.addSpecialOffer(new SpecialOffer(offerDescription, discount, category, priority, stackable));
+        }
+        return restaurant;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,114 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.function.Supplier;
+
+// All screen output goes through here. Each thread writes to its own sink, which
+// by default buffers a whole screen and writes it to System.out in one go when
+// the thread next waits for input. A session can swap in a sink for a socket,
+// or the no-op sink when output is not wanted, such as in benchmarks.
+public final class Console {
+    // Buffered text is written out early once it grows past this many characters
+    private static final int AUTO_FLUSH_CHARS = 8192;
+
+    public static final IOutputSink NO_OP = new IOutputSink() {
+        @Override
+        public void write(String text) {
+        }
+
+        @Override
+        public void flush() {
+        }
+    };
+
+    private static volatile Supplier<IOutputSink> defaultSinks = () -> new BufferedSink(null);
+    private static final ThreadLocal<IOutputSink> SINK = ThreadLocal.withInitial(() -> defaultSinks.get());
+
+    private Console() {
+    }
+
+    // Method to choose the sink threads start with, for threads that have not written yet
+    public static void setDefaultSinks(Supplier<IOutputSink> sinks) {
+        defaultSinks = sinks;
+    }
+
+    // Method to send the calling thread's output somewhere else
+    public static void setSink(IOutputSink sink) {
+        SINK.get().flush();
+        SINK.set(sink);
+    }
+
+    public static IOutputSink getSink() {
+        return SINK.get();
+    }
+
+    public static void print(String text) {
+        SINK.get().write(text);
+    }
+
+    public static void println(String text) {
+        IOutputSink sink = SINK.get();
+        sink.write(text);
+        sink.write("\n");
+    }
+
+    public static void println() {
+        SINK.get().write("\n");
+    }
+
+    // Method to write out the current screen
+    public static void flush() {
+        SINK.get().flush();
+    }
+
+    // Method to wrap an input so the screen is flushed before the program waits on it
+    public static InputStream flushingInput(InputStream input) {
+        return new FilterInputStream(input) {
+            @Override
+            public int read() throws IOException {
+                flush();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                flush();
+                return super.read(buffer, offset, length);
+            }
+        };
+    }
+
+    // Sink that collects a screen of text and writes it to a stream in one call. It is
+    // synchronized so that background work, such as the order pipeline, can write to
+    // a session's sink.
+    public static class BufferedSink implements IOutputSink {
+        private final PrintStream out;
+        private final StringBuilder buffer;
+
+        // Constructor; a null stream means whatever System.out is at the time of the flush
+        public BufferedSink(PrintStream out) {
+            this.out = out;
+            this.buffer = new StringBuilder(1024);
+        }
+
+        @Override
+        public synchronized void write(String text) {
+            buffer.append(text);
+            if (buffer.length() >= AUTO_FLUSH_CHARS) {
+                flush();
+            }
+        }
+
+        @Override
+        public synchronized void flush() {
+            if (buffer.length() == 0) {
+                return;
+            }
+            PrintStream target = out != null ? out : System.out;
+            target.print(buffer);
+            target.flush();
+            buffer.setLength(0);
+        }
+    }
+}
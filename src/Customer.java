@@ -1,15 +1,30 @@
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
 
 public class Customer {
+    private static final LatencyHistogram LOAD_LATENCY = Metrics.histogram("customer.load.nanos");
+    private static final LongAdder RECORDS_LOADED = Metrics.counter("customer.load.records");
+    // Bounds on the size of the chunks the customers file is split into while loading
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+    private static final long MAX_CHUNK_BYTES = Integer.MAX_VALUE;
+
     private String memberId;
     private String customerName;
     private String contactNumber;
     private String deliveryAddress;
-    private List<Order> orderHistory;
+    private CustomerMap customerMap;
 
     // Constructor
     public Customer(String memberId, String customerName, String contactNumber, String deliveryAddress) {
@@ -17,7 +32,6 @@ public class Customer {
         this.customerName = customerName;
         this.contactNumber = contactNumber;
         this.deliveryAddress = deliveryAddress;
-        this.orderHistory = new ArrayList<>();
     }
 
     // Getters and Setters
@@ -34,7 +48,11 @@ public class Customer {
     }
 
     public void setCustomerName(String customerName) {
+        String oldName = this.customerName;
         this.customerName = customerName;
+        if (customerMap != null) {
+            customerMap.renameCustomer(this, oldName);
+        }
     }
 
     public String getContactNumber() {
@@ -53,81 +71,206 @@ public class Customer {
         this.deliveryAddress = deliveryAddress;
     }
 
-    public List<Order> getOrderHistory() {
-        return orderHistory;
-    }
-
-    public void setOrderHistory(String deliveryAddress) {
-        this.orderHistory = orderHistory;
+    // Set by the customer map holding this customer so that name changes reach its index
+    void setCustomerMap(CustomerMap customerMap) {
+        this.customerMap = customerMap;
     }
 
-    // Method to view order history
-    public void viewOrderHistory() {
-        if (orderHistory.isEmpty()) {
-            System.out.println("-----------------------------------");
-            System.out.println("No past orders found.");
-            System.out.println("-----------------------------------");
-            return;
+    // Method to view one page of the order history, most recent first; returns whether older orders remain
+    public boolean viewOrderHistory(OrderLog orderLog, int page, int pageSize) {
+        List<OrderRecord> orders = orderLog.getOrderHistory(memberId, page, pageSize);
+        if (orders.isEmpty()) {
+            Console.println("-----------------------------------");
+            Console.println(page == 0 ? "No past orders found." : "No older orders found.");
+            Console.println("-----------------------------------");
+            return false;
         }
 
-        System.out.println("-----------------------------------");
-        System.out.println("Order History:");
-        for (Order order : orderHistory) {
-            System.out.println("Order at " + order.getRestaurant().getRestaurantName() + " - Total Cost: $" + String.format("%.2f", order.getTotalCost()));
+        Console.println("-----------------------------------");
+        Console.println(page == 0 ? "Order History:" : "Older Orders:");
+        for (OrderRecord order : orders) {
+            Console.println("Order at " + order.getRestaurantName() + " - Total Cost: $" + Money.format(order.getTotalCost()));
+            Console.println("  " + order.getItemSummary());
         }
-        System.out.println("-----------------------------------");
+        Console.println("-----------------------------------");
+        return orderLog.countOrders(memberId) > (page + 1) * pageSize;
     }
 
-    // Method to generate unique member Id
-    public static String generateMemberId(Map<String, Customer> customerMap) {
-        String memberId;
-        Random random = new Random();
-        do {
-            int randomId = random.nextInt(99998) + 1; // Generate a random id between 00000 and 99999
-            memberId = String.format("%05d", randomId);
-        } while (customerMap.containsKey(memberId)); // Check for uniqueness
-
-        return memberId;
+    // Method to register a new member, or return null if the name is already taken
+    public static Customer registerCustomer(CustomerMap customerMap, IMemberIdAllocator memberIdAllocator, CustomerJournal customerJournal,
+                                            String name, String contactNumber, String deliveryAddress) {
+        if (isExistingMemberName(customerMap, name)) {
+            return null;
+        }
+        Customer customer = new Customer(memberIdAllocator.nextMemberId(), name, contactNumber, deliveryAddress);
+        // Another session may have claimed the name since the check above
+        if (!customerMap.putIfNameAbsent(customer)) {
+            return null;
+        }
+        customerJournal.append(customer);
+        return customer;
     }
 
     // Method to check if name exists in customer map
-    public static boolean isExistingMemberName(Map<String, Customer> customerMap, String name) {
-        return customerMap.values().stream().anyMatch(member -> member.getCustomerName().equalsIgnoreCase(name));
+    public static boolean isExistingMemberName(CustomerMap customerMap, String name) {
+        return customerMap.containsName(name);
     }
 
     // Method to save customers to a file
     public static void saveCustomers(String filename, Map<String, Customer> customerMap) {
         try (FileWriter writer = new FileWriter(filename)) {
             for (Customer customer : customerMap.values()) {
-                writer.write(customer.getMemberId() + "," +
-                        customer.getCustomerName() + "," +
-                        customer.getContactNumber() + "," +
-                        customer.getDeliveryAddress() + "\n");
+                writer.write(toRecord(customer));
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    // Method to turn a customer into one line of the customers file
+    public static String toRecord(Customer customer) {
+        return customer.getMemberId() + "," +
+                customer.getCustomerName() + "," +
+                customer.getContactNumber() + "," +
+                customer.getDeliveryAddress() + "\n";
+    }
+
 
-    // Method to load customers from a file
+    // Method to load customers from the snapshot file and replay its journal on top
     public static void loadCustomers(String filename, Map<String, Customer> customerMap) {
-        File myObj = new File(filename);
-        try (Scanner myReader = new Scanner(myObj)) {
-            while (myReader.hasNextLine()) {
-                String data = myReader.nextLine();
-                String[] parts = data.split(",");
+        long startTime = System.nanoTime();
+        int loaded = 0;
+        try {
+            Path snapshot = Paths.get(filename);
+            if (Files.exists(snapshot)) {
+                loaded += readRecords(snapshot, customerMap);
+            }
 
-                if (parts.length != 4) {
-                    throw new IllegalArgumentException("Invalid data format for deserialization");
+            // A journal left behind by an unfinished compaction is older than the current one
+            Path compacting = CustomerJournal.compactingPath(filename);
+            if (Files.exists(compacting)) {
+                loaded += readRecords(compacting, customerMap);
+            }
+            Path journal = CustomerJournal.journalPath(filename);
+            if (Files.exists(journal)) {
+                loaded += readRecords(journal, customerMap);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        long elapsed = System.nanoTime() - startTime;
+        LOAD_LATENCY.record(elapsed);
+        RECORDS_LOADED.add(loaded);
+        double seconds = Math.max(elapsed, 1) / 1_000_000_000.0;
+        Console.println("Loaded " + loaded + " customer records in " + String.format("%.1f", seconds * 1000) +
+                " ms (" + String.format("%.0f", loaded / seconds) + " records/s)");
+    }
+
+    // Method to memory-map a customers file and parse its line-aligned chunks in parallel
+    static int readRecords(Path path, Map<String, Customer> customerMap) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return 0;
+            }
+
+            // Enough chunks to keep every core busy, each small enough for a single mapping
+            int chunkCount = (int) Math.max(size / MAX_CHUNK_BYTES + 1,
+                    Math.min(Runtime.getRuntime().availableProcessors() * 4L, size / MIN_CHUNK_BYTES));
+            long[] bounds = new long[chunkCount + 1];
+            bounds[chunkCount] = size;
+            for (int i = 1; i < chunkCount; i++) {
+                bounds[i] = Math.max(bounds[i - 1], nextLineStart(channel, size * i / chunkCount, size));
+            }
+
+            List<List<Customer>> chunks = IntStream.range(0, chunkCount)
+                    .parallel()
+                    .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1]))
+                    .toList();
+
+            // Merge in file order so later records win, as they would when read line by line
+            int count = 0;
+            for (List<Customer> chunk : chunks) {
+                for (Customer customer : chunk) {
+                    customerMap.put(customer.getMemberId(), customer);
                 }
+                count += chunk.size();
+            }
+            return count;
+        }
+    }
 
-                Customer customer = new Customer(parts[0], parts[1], parts[2], parts[3]);
-                customerMap.put(customer.getMemberId(), customer);
+    // Method to find the offset just past the next newline at or after a position
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(4096);
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
             }
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
         }
+        return size;
     }
-}
 
+    // Method to parse the complete lines between two offsets of the file
+    private static List<Customer> parseChunk(FileChannel channel, long start, long end) {
+        List<Customer> customers = new ArrayList<>();
+        if (start >= end) {
+            return customers;
+        }
+
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] line = new byte[256];
+        int[] commas = new int[3];
+        int length = 0;
+        int commaCount = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i <= limit; i++) {
+            byte b = i < limit ? buffer.get(i) : (byte) '\n';
+            if (b == '\n') {
+                if (length > 0 && line[length - 1] == '\r') {
+                    length--;
+                }
+                if (length > 0) {
+                    if (commaCount != 3) {
+                        throw new IllegalArgumentException("Invalid data format for deserialization");
+                    }
+                    customers.add(new Customer(
+                            new String(line, 0, commas[0], StandardCharsets.UTF_8),
+                            new String(line, commas[0] + 1, commas[1] - commas[0] - 1, StandardCharsets.UTF_8),
+                            new String(line, commas[1] + 1, commas[2] - commas[1] - 1, StandardCharsets.UTF_8),
+                            new String(line, commas[2] + 1, length - commas[2] - 1, StandardCharsets.UTF_8)));
+                }
+                length = 0;
+                commaCount = 0;
+                continue;
+            }
+
+            if (b == ',') {
+                if (commaCount == 3) {
+                    throw new IllegalArgumentException("Invalid data format for deserialization");
+                }
+                commas[commaCount++] = length;
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[length++] = b;
+        }
+        return customers;
+    }
+}
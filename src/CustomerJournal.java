@@ -0,0 +1,240 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class CustomerJournal {
+    // Number of journal records after which the snapshot is rewritten in the background
+    private static final int COMPACTION_THRESHOLD = 1000;
+
+    private static final LatencyHistogram APPEND_LATENCY = Metrics.histogram("customer.journal.append.nanos");
+    private static final LongAdder COMPACTIONS = Metrics.counter("customer.journal.compactions");
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final Path compactingPath;
+    private final Map<String, Customer> customerMap;
+    private final ExecutorService compactor;
+    // Locks rather than monitors, since both are held across file I/O and sessions run on virtual threads,
+    // which a blocked monitor would pin to their carrier
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private FileChannel journal;
+    private long recordsWritten;
+    private long recordsSynced;
+    private int recordsSinceCompaction;
+    private boolean compacting;
+
+    // Constructor
+    public CustomerJournal(String filename, Map<String, Customer> customerMap) {
+        this.snapshotPath = Paths.get(filename);
+        this.journalPath = journalPath(filename);
+        this.compactingPath = compactingPath(filename);
+        this.customerMap = customerMap;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "customer-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            recoverCompaction();
+            this.journal = openJournal();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Method to finish a compaction that a crash or an I/O error left behind, folding its journal
+    // into the snapshot so that compaction can rotate the journal again
+    private void recoverCompaction() throws IOException {
+        if (!Files.exists(compactingPath)) {
+            return;
+        }
+        Map<String, Customer> customers = new LinkedHashMap<>();
+        if (Files.exists(snapshotPath)) {
+            Customer.readRecords(snapshotPath, customers);
+        }
+        Customer.readRecords(compactingPath, customers);
+        writeSnapshot(customers);
+        Files.deleteIfExists(compactingPath);
+    }
+
+    // Journal holding the records appended since the last compaction
+    static Path journalPath(String filename) {
+        return Paths.get(filename + ".journal");
+    }
+
+    // Journal being folded into the snapshot by a running compaction
+    static Path compactingPath(String filename) {
+        return Paths.get(filename + ".journal.old");
+    }
+
+    // Method to append a new or changed customer to the journal
+    public void append(Customer customer) {
+        long startTime = System.nanoTime();
+        ByteBuffer record = StandardCharsets.UTF_8.encode(Customer.toRecord(customer));
+        long sequence;
+        writeLock.lock();
+        try {
+            try {
+                while (record.hasRemaining()) {
+                    journal.write(record);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            sequence = ++recordsWritten;
+            if (++recordsSinceCompaction >= COMPACTION_THRESHOLD) {
+                startCompaction();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        sync(sequence);
+        APPEND_LATENCY.record(System.nanoTime() - startTime);
+    }
+
+    // Method to force the journal to disk, sharing one fsync between concurrent appends
+    private void sync(long sequence) {
+        syncLock.lock();
+        try {
+            if (recordsSynced >= sequence) {
+                return;
+            }
+            FileChannel channel;
+            long target;
+            writeLock.lock();
+            try {
+                channel = journal;
+                target = recordsWritten;
+            } finally {
+                writeLock.unlock();
+            }
+            try {
+                channel.force(false);
+                recordsSynced = target;
+            } catch (ClosedChannelException e) {
+                recordsSynced = target; // rotated away, and rotation forces before closing
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Method to rotate the journal and rewrite the snapshot on the compactor thread
+    private void startCompaction() {
+        if (compacting) {
+            return; // previous compaction still running, the journal keeps growing until it finishes
+        }
+        try {
+            journal.force(false);
+            journal.close();
+            if (Files.exists(compactingPath)) {
+                // The last compaction failed; its journal is still needed until a snapshot is written
+                try (FileChannel older = FileChannel.open(compactingPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+                    while (records.hasRemaining()) {
+                        older.write(records);
+                    }
+                    older.force(false);
+                }
+                Files.delete(journalPath);
+            } else {
+                Files.move(journalPath, compactingPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try {
+            journal = openJournal();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recordsSinceCompaction = 0;
+        if (!Files.exists(compactingPath)) {
+            return;
+        }
+
+        compacting = true;
+        COMPACTIONS.increment();
+        compactor.execute(this::compact);
+    }
+
+    // Method to write the snapshot from the customers held in memory and drop the journal it replaces.
+    // The map is read here rather than copied under the append lock; every record in the rotated
+    // journal was put in the map before the rotation, so the snapshot holds all of them.
+    private void compact() {
+        try {
+            writeSnapshot(customerMap);
+            Files.deleteIfExists(compactingPath);
+        } catch (IOException e) {
+            // The rotated journal stays in place and the next compaction folds it in again
+            e.printStackTrace();
+        } finally {
+            writeLock.lock();
+            try {
+                compacting = false;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    // Method to write the snapshot to a temporary file and move it into place atomically
+    private void writeSnapshot(Map<String, Customer> snapshot) throws IOException {
+        Path temporaryPath = Paths.get(snapshotPath + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            StringBuilder records = new StringBuilder();
+            for (Customer customer : snapshot.values()) {
+                records.append(Customer.toRecord(customer));
+            }
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(records.toString());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporaryPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private FileChannel openJournal() throws IOException {
+        return FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Method to wait for a running compaction and close the journal
+    public void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try {
+            journal.force(false);
+            journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CustomerMap extends AbstractMap<String, Customer> {
+    private final Map<String, Customer> customersById;
+    private final Map<String, String> memberIdsByName;
+
+    // Constructor
+    public CustomerMap() {
+        this.customersById = new ConcurrentHashMap<>();
+        this.memberIdsByName = new ConcurrentHashMap<>();
+    }
+
+    // Method to normalise a name the same way for indexing and lookup
+    static String normalizeName(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // Method to check if a name is taken, ignoring case
+    public boolean containsName(String name) {
+        return memberIdsByName.containsKey(normalizeName(name));
+    }
+
+    // Method to look up a customer by name, ignoring case
+    public Customer getByName(String name) {
+        String memberId = memberIdsByName.get(normalizeName(name));
+        return memberId == null ? null : customersById.get(memberId);
+    }
+
+    // Method to add a customer only if no one holds their name yet, as one atomic step
+    public boolean putIfNameAbsent(Customer customer) {
+        String memberId = customer.getMemberId();
+        if (memberIdsByName.putIfAbsent(normalizeName(customer.getCustomerName()), memberId) != null) {
+            return false;
+        }
+        customersById.put(memberId, customer);
+        customer.setCustomerMap(this);
+        return true;
+    }
+
+    @Override
+    public Customer get(Object memberId) {
+        return customersById.get(memberId);
+    }
+
+    @Override
+    public boolean containsKey(Object memberId) {
+        return customersById.containsKey(memberId);
+    }
+
+    @Override
+    public int size() {
+        return customersById.size();
+    }
+
+    @Override
+    public Customer put(String memberId, Customer customer) {
+        Customer previous = customersById.put(memberId, customer);
+        if (previous != null && previous != customer) {
+            memberIdsByName.remove(normalizeName(previous.getCustomerName()), memberId);
+            previous.setCustomerMap(null);
+        }
+        memberIdsByName.put(normalizeName(customer.getCustomerName()), memberId);
+        customer.setCustomerMap(this);
+        return previous;
+    }
+
+    @Override
+    public Customer remove(Object memberId) {
+        Customer removed = customersById.remove(memberId);
+        if (removed != null) {
+            memberIdsByName.remove(normalizeName(removed.getCustomerName()), removed.getMemberId());
+            removed.setCustomerMap(null);
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        for (Customer customer : customersById.values()) {
+            customer.setCustomerMap(null);
+        }
+        customersById.clear();
+        memberIdsByName.clear();
+    }
+
+    // Entries are read-only so that every change goes through put and remove and keeps the name index in sync
+    @Override
+    public Set<Entry<String, Customer>> entrySet() {
+        return Collections.unmodifiableMap(customersById).entrySet();
+    }
+
+    // Method to move a customer's index entry when their name changes
+    void renameCustomer(Customer customer, String oldName) {
+        if (oldName != null) {
+            memberIdsByName.remove(normalizeName(oldName), customer.getMemberId());
+        }
+        memberIdsByName.put(normalizeName(customer.getCustomerName()), customer.getMemberId());
+    }
+}
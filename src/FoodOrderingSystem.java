@@ -1,82 +1,182 @@
-import java.util.ArrayList;
-import java.util.HashMap;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.InputMismatchException;
-import java.util.List;
-import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public class FoodOrderingSystem {
-    private SpecialOffer specialOffer;
-    private Customer customer;
-    private MenuItem menuItem;
-    private Map<String, Customer> customerMap;
-    private List<Restaurant> restaurants;
+    static final int HISTORY_PAGE_SIZE = 10;
+    private static final long METRICS_DUMP_SECONDS = 10;
+
+    private CustomerMap customerMap;
+    private CustomerJournal customerJournal;
+    private IMemberIdAllocator memberIdAllocator;
+    private OrderLog orderLog;
+    private OrderPipeline orderPipeline;
+    private RestaurantRegistry restaurants;
     private Scanner userInput;
+    private ExecutorService sessionExecutor;
+    private boolean ownsSharedState;
+
+    private static final String CATALOGUE_FILE = "catalogue.bin";
 
     public FoodOrderingSystem() {
         // Initialise
-        userInput = new Scanner(System.in);
-        restaurants = new ArrayList<>();
-        customerMap = new HashMap<>();
+        userInput = new Scanner(Console.flushingInput(System.in));
+        ownsSharedState = true;
+        customerMap = new CustomerMap();
         Customer.loadCustomers("customers.txt", customerMap);
+        customerJournal = new CustomerJournal("customers.txt", customerMap);
+        // Ten-digit IDs resume past the existing five-digit ones, which keep working as they are
+        memberIdAllocator = MemberIdAllocator.wide("customers.txt", customerMap, 100);
+        sessionExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        orderLog = new OrderLog("orders");
+        orderPipeline = new OrderPipeline(orderLog, OrderPipeline.DEFAULT_QUEUE_CAPACITY);
+
+        // Restore the saved catalogue, or start from the default one
+        restaurants = CatalogueSnapshot.load(CATALOGUE_FILE);
+        if (restaurants == null) {
+            restaurants = createDefaultCatalogue();
+        }
+    }
+
+    // Method to build the catalogue the system starts with when none has been saved
+    private static RestaurantRegistry createDefaultCatalogue() {
+        RestaurantRegistry restaurants = new RestaurantRegistry();
 
         // Add restaurants
-        restaurants.add(new Restaurant("Yummy Restaurant"));
-        restaurants.add(new Restaurant("Delicious Restaurant"));
+        Restaurant yummyRestaurant = new Restaurant("Yummy Restaurant");
+        Restaurant deliciousRestaurant = new Restaurant("Delicious Restaurant");
+        restaurants.add(yummyRestaurant);
+        restaurants.add(deliciousRestaurant);
 
-        // Add items to the menu of the restaurants
-        restaurants.get(0).addToMenu(new FoodItem("Cheese Burger", 9.90, "Delicious cheesy chicken burger with pickle inside", "American"), 10);
-        restaurants.get(0).addToMenu(new FoodItem("Chicken Chop", 14.90, "Delicious chicken chop sides with wedges and salad", "Western"), 10);
-        restaurants.get(0).addToMenu(new DrinkItem("Cola", 2.90, "Refreshing cola drink", "Soft Drink"), 20);
+        // Add items to the menu of the restaurants (prices in cents)
+        yummyRestaurant.addToMenu(new FoodItem("Cheese Burger", 990, "Delicious cheesy chicken burger with pickle inside", "American"), 10);
+        yummyRestaurant.addToMenu(new FoodItem("Chicken Chop", 1490, "Delicious chicken chop sides with wedges and salad", "Western"), 10);
+        yummyRestaurant.addToMenu(new DrinkItem("Cola", 290, "Refreshing cola drink", "Soft Drink"), 20);
 
-        restaurants.get(1).addToMenu(new FoodItem("Carbonara Pasta", 12.90, "Delicious creamy cheesy spaghetti with chicken slices", "Italian"), 10);
-        restaurants.get(1).addToMenu(new DrinkItem("Sprite", 2.90, "Refreshing cola drink", "Soft Drink"), 20);
-        restaurants.get(1).addToMenu(new DrinkItem("Ice Lemon Tea", 2.90, "Refreshing cola drink", "Soft Drink"), 20);
+        deliciousRestaurant.addToMenu(new FoodItem("Carbonara Pasta", 1290, "Delicious creamy cheesy spaghetti with chicken slices", "Italian"), 10);
+        deliciousRestaurant.addToMenu(new DrinkItem("Sprite", 290, "Refreshing cola drink", "Soft Drink"), 20);
+        deliciousRestaurant.addToMenu(new DrinkItem("Ice Lemon Tea", 290, "Refreshing cola drink", "Soft Drink"), 20);
 
         // Add special offers
-        specialOffer = new SpecialOffer("10% Off on All Soft Drink", 10.0);
-        restaurants.get(1).addSpecialOffer(specialOffer);
+        SpecialOffer specialOffer = new SpecialOffer("10% Off on All Soft Drink", 10.0, "Soft Drink");
+        deliciousRestaurant.addSpecialOffer(specialOffer);
+        return restaurants;
+    }
+
+    // Constructor for a console session over another system's restaurants and members
+    private FoodOrderingSystem(FoodOrderingSystem shared, Scanner userInput) {
+        this.userInput = userInput;
+        this.restaurants = shared.restaurants;
+        this.customerMap = shared.customerMap;
+        this.customerJournal = shared.customerJournal;
+        this.memberIdAllocator = shared.memberIdAllocator;
+        this.orderLog = shared.orderLog;
+        this.orderPipeline = shared.orderPipeline;
+        this.sessionExecutor = shared.sessionExecutor;
+        this.ownsSharedState = false;
+    }
+
+    // Method to open a session with its own customer and cart over the shared restaurants and members
+    public OrderingSession openSession() {
+        return new OrderingSession(restaurants, customerMap, memberIdAllocator, customerJournal, orderLog, orderPipeline);
+    }
+
+    // Method to run a session script on its own virtual thread
+    public Future<?> runSession(Consumer<OrderingSession> script) {
+        return sessionExecutor.submit(() -> {
+            try {
+                script.accept(openSession());
+            } finally {
+                Console.flush();
+            }
+        });
+    }
+
+    // Method to serve the console to clients of a local socket, each session on its own virtual thread
+    public void serve(int port) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            Console.println("Serving FoodieBran sessions on port " + serverSocket.getLocalPort());
+            Console.flush();
+            while (true) {
+                Socket socket = serverSocket.accept();
+                sessionExecutor.submit(() -> serveClient(socket));
+            }
+        }
+    }
+
+    private void serveClient(Socket socket) {
+        try (socket) {
+            Console.setSink(new Console.BufferedSink(new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8)));
+            Scanner input = new Scanner(Console.flushingInput(socket.getInputStream()), StandardCharsets.UTF_8);
+            new FoodOrderingSystem(this, input).run();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Method to wait for running sessions and close the shared files
+    public void shutdown() {
+        sessionExecutor.close();
+        orderPipeline.close();
+        CatalogueSnapshot.save(restaurants, CATALOGUE_FILE);
+        customerJournal.close();
+        orderLog.close();
     }
 
     // 1. Register as a New Library Member
     private void registerMember(){
-        System.out.print("Enter your name: ");
+        Console.print("Enter your name: ");
         String name = userInput.nextLine();
 
-        System.out.print("Enter your contact number: ");
+        Console.print("Enter your contact number: ");
         String contactNumber = userInput.nextLine();
 
-        System.out.print("Enter your delivery address: ");
+        Console.print("Enter your delivery address: ");
         String deliveryAddress = userInput.nextLine();
 
-        // Generate random but unique member ID
-        String memberId = Customer.generateMemberId(customerMap);
-
-        // Check if a member with the entered name already exists
-        if (Customer.isExistingMemberName(customerMap, name)) {
-            System.out.println("A member with the name '" + name + "' already exists. Please enter a different name.");
+        // Register the member unless the name is already taken
+        Customer customer;
+        try {
+            customer = Customer.registerCustomer(customerMap, memberIdAllocator, customerJournal, name, contactNumber, deliveryAddress);
+        } catch (IllegalStateException e) {
+            // Every member ID has been handed out
+            Console.println("-----------------------------------");
+            Console.println("Registration is closed: " + e.getMessage());
+            Console.println("-----------------------------------");
+            return;
+        }
+        if (customer == null) {
+            Console.println("A member with the name '" + name + "' already exists. Please enter a different name.");
         } else {
-            customer = new Customer(memberId, name, contactNumber, deliveryAddress);
-            customerMap.put(memberId, customer);
-            Customer.saveCustomers("customers.txt", customerMap);
-
-            System.out.println("-----------------------------------");
-            System.out.println(name + ", you are now registered as a library member with ID: " + memberId);
-            System.out.println("-----------------------------------");
+            Console.println("-----------------------------------");
+            Console.println(name + ", you are now registered as a library member with ID: " + customer.getMemberId());
+            Console.println("-----------------------------------");
         }
     }
 
 
     // 2. Place Food Order
     private void placeOrder() {
-        System.out.print("Enter your member ID: ");
+        Console.print("Enter your member ID: ");
         String memberId = userInput.nextLine();
-        System.out.println("-----------------------------------");
-        customer = customerMap.get(memberId);
+        Console.println("-----------------------------------");
+        Customer customer = customerMap.get(memberId);
 
         if (!customerMap.containsKey(memberId)) {
-            System.out.println("Invalid member ID. Please try again.");
-            System.out.println("-----------------------------------");
+            Console.println("Invalid member ID. Please try again.");
+            Console.println("-----------------------------------");
         } else {
             // Display list of restaurants available
             Restaurant.displayRestaurants(restaurants);
@@ -88,10 +188,10 @@ public class FoodOrderingSystem {
 
             do {
                 try {
-                    System.out.print("Enter your choice: ");
+                    Console.print("Enter your choice: ");
                     option = userInput.nextInt();
                     userInput.nextLine();
-                    System.out.println("-----------------------------------");
+                    Console.println("-----------------------------------");
 
                     selectedRestaurant = Restaurant.getRestaurantChoiceAndMenu(option, restaurants);
 
@@ -105,32 +205,40 @@ public class FoodOrderingSystem {
                         // Prompt the user to choose which item to order
                         boolean isOrdering = true;
                         while (isOrdering) {
-                            System.out.println("Enter the name of the item you want to order (type 'done' to finish, 'view' to view cart):");
+                            Console.println("Enter the name of the item you want to order (type 'done' to finish, 'view' to view cart):");
                             String inputOrder = userInput.nextLine();
 
                             switch (inputOrder.toLowerCase()) {
                                 case "done":
                                     isOrdering = false;
                                     if (cart.getItems().isEmpty()) {
-                                        System.out.println("-----------------------------------");
-                                        System.out.println("Your cart is empty. No charges applied.");
-                                        System.out.println("-----------------------------------");
+                                        Console.println("-----------------------------------");
+                                        Console.println("Your cart is empty. No charges applied.");
+                                        Console.println("-----------------------------------");
                                     } else {
+                                        // Hold the stock while the customer confirms
+                                        StockReservation reservation = selectedRestaurant.reserveStock(cart.getItems());
+                                        if (reservation == null) {
+                                            Console.println("Unable to process the order due to insufficient stock.");
+                                            Console.println("-----------------------------------");
+                                            break;
+                                        }
+
                                         Order.displayOrderSummary(cart);
 
-                                        System.out.print("Please confirm your order (Y/N): ");
+                                        Console.print("Please confirm your order (Y/N): ");
                                         String confirmOrder = userInput.nextLine().toUpperCase();
-                                        System.out.println("-----------------------------------");
+                                        Console.println("-----------------------------------");
 
                                         if (confirmOrder.equals("Y")) {
-                                            Order newOrder = selectedRestaurant.processOrder(customer, cart);
-                                            if (newOrder != null) {
-                                                customer.getOrderHistory().add(newOrder);
+                                            confirmOrder(customer, selectedRestaurant, cart, reservation);
+                                        } else {
+                                            reservation.release();
+                                            if (confirmOrder.equals("N")) {
+                                                Console.println("Order cancelled... ");
+                                                Console.println("Returning to main page... ");
+                                                Console.println("-----------------------------------");
                                             }
-                                        } else if (confirmOrder.equals("N")) {
-                                            System.out.println("Order cancelled... ");
-                                            System.out.println("Returning to main page... ");
-                                            System.out.println("-----------------------------------");
                                         }
                                     }
                                     break;
@@ -138,17 +246,17 @@ public class FoodOrderingSystem {
                                     cart.displayCartContents();
                                     break;
                                 default:
-                                    menuItem = MenuItem.findMenuItem(selectedRestaurant, inputOrder);
+                                    MenuItem menuItem = MenuItem.findMenuItem(selectedRestaurant, inputOrder);
                                     if (menuItem != null) {
-                                        System.out.print("Enter quantity: ");
+                                        Console.print("Enter quantity: ");
                                         int inputQuantity = userInput.nextInt();
                                         userInput.nextLine();
 
                                         menuItem.handleMenuItemSelection(selectedRestaurant, cart, menuItem, inputOrder, inputQuantity);
                                     } else {
-                                        System.out.println("-----------------------------------");
-                                        System.out.println("Item not available or not found.");
-                                        System.out.println("-----------------------------------");
+                                        Console.println("-----------------------------------");
+                                        Console.println("Item not available or not found.");
+                                        Console.println("-----------------------------------");
                                     }
                             }
                         }
@@ -156,8 +264,8 @@ public class FoodOrderingSystem {
                         break;
                     }
                 } catch (InputMismatchException e) {
-                    System.out.println("Invalid input. Please enter a valid number.");
-                    System.out.println("-----------------------------------");
+                    Console.println("Invalid input. Please enter a valid number.");
+                    Console.println("-----------------------------------");
                     userInput.nextLine();
                 }
             } while (!validSelection);
@@ -166,54 +274,77 @@ public class FoodOrderingSystem {
 
 
 
+    // Method to place a confirmed order through the pipeline and wait for its outcome before the next screen
+    private void confirmOrder(Customer customer, Restaurant restaurant, Cart cart, StockReservation reservation) {
+        try {
+            orderPipeline.submit(customer, restaurant, cart, reservation).join();
+        } catch (CompletionException e) {
+            // The pipeline has already given the stock back
+            e.getCause().printStackTrace();
+            Console.println("Unable to process the order. Please try again.");
+            Console.println("-----------------------------------");
+        } catch (InterruptedException e) {
+            reservation.release();
+            Thread.currentThread().interrupt();
+        }
+    }
+
     // 3. View Order History
     private void orderHistory() {
-        System.out.print("Enter your member ID: ");
+        Console.print("Enter your member ID: ");
         String memberId = userInput.nextLine();
-        customer = customerMap.get(memberId);
+        Customer customer = customerMap.get(memberId);
 
-        if (!customerMap.containsKey(memberId)) {
-            System.out.println("-----------------------------------");
-            System.out.println("Invalid member ID. Please try again.");
-            System.out.println("-----------------------------------");
+        if (customer == null) {
+            Console.println("-----------------------------------");
+            Console.println("Invalid member ID. Please try again.");
+            Console.println("-----------------------------------");
         } else {
-            Customer customer = customerMap.get(memberId);
-            customer.viewOrderHistory();
+            // Show the most recent orders first, one page at a time
+            int page = 0;
+            while (customer.viewOrderHistory(orderLog, page, HISTORY_PAGE_SIZE)) {
+                Console.print("Show older orders (Y/N): ");
+                if (!userInput.nextLine().equalsIgnoreCase("Y")) {
+                    break;
+                }
+                page++;
+            }
         }
     }
 
 
     // 4. Admin Login
     private void adminLogin() {
-        System.out.print("Enter admin username: ");
+        Console.print("Enter admin username: ");
         String username = userInput.nextLine();
-        System.out.print("Enter admin password: ");
+        Console.print("Enter admin password: ");
         String password = userInput.nextLine();
 
         if (Admin.checkAdminCredentials(username, password)) {
             Admin admin = new Admin(restaurants, userInput);
             admin.showAdminMenu();
+            CatalogueSnapshot.save(restaurants, CATALOGUE_FILE);
         } else {
-            System.out.println("-----------------------------------");
-            System.out.println("Invalid admin credentials. Please try again.");
-            System.out.println("-----------------------------------");
+            Console.println("-----------------------------------");
+            Console.println("Invalid admin credentials. Please try again.");
+            Console.println("-----------------------------------");
         }
     }
 
     
     public void run() {
+        int option = -1;
         try {
-            int option = -1;
             do {
                 displayMenu();
                 try {
                     option = userInput.nextInt();
-                    System.out.println("-----------------------------------");
+                    Console.println("-----------------------------------");
                     userInput.nextLine();
                 } catch (InputMismatchException e) {
-                    System.out.println("-----------------------------------");
-                    System.out.println("Invalid input. Please enter a number.");
-                    System.out.println("-----------------------------------");
+                    Console.println("-----------------------------------");
+                    Console.println("Invalid input. Please enter a number.");
+                    Console.println("-----------------------------------");
                     userInput.nextLine();
                     continue;
                 }
@@ -232,25 +363,34 @@ public class FoodOrderingSystem {
                         adminLogin();
                         break;
                     case 5:
-                        System.out.println("Thank you for using FoodieBran. Goodbye !");
-                        System.out.println("-----------------------------------");
+                        if (ownsSharedState) {
+                            shutdown();
+                        }
+                        Console.println("Thank you for using FoodieBran. Goodbye !");
+                        Console.println("-----------------------------------");
                         break;
                     default:
-                        System.out.println("Invalid option. Please try again (1-5).");
-                        System.out.println("-----------------------------------");
+                        Console.println("Invalid option. Please try again (1-5).");
+                        Console.println("-----------------------------------");
                         break;
                 }
             } while (option != 5);
         } catch (Exception e) {
-            System.out.println("An unexpected error occurred: " + e.getMessage());
+            Console.println("An unexpected error occurred: " + e.getMessage());
+            // Still close the shared files and save the catalogue on the way out
+            if (ownsSharedState && option != 5) {
+                shutdown();
+            }
+        } finally {
+            Console.flush();
         }
     }
 
     private void displayMenu() {
-        System.out.println("Welcome to FoodieBran!");
-        System.out.println("-----------------------------------");
-        specialOffer.displayOffers(restaurants);
-        System.out.print("""
+        Console.println("Welcome to FoodieBran!");
+        Console.println("-----------------------------------");
+        SpecialOffer.displayOffers(restaurants);
+        Console.print("""
             1. Register as a New Member to get Exclusive Discount
             2. Place Food Order
             3. View Order History
@@ -260,8 +400,31 @@ public class FoodOrderingSystem {
             Enter your choice:""");
     }
 
-    public static void main(String[] args) {
+    // Usage: java FoodOrderingSystem [--serve <port>] [--metrics-port <port>] [--metrics-file <file>]
+    public static void main(String[] args) throws IOException {
+        int servePort = -1;
+        HttpServer metricsServer = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--serve" -> servePort = Integer.parseInt(value);
+                case "--metrics-port" -> metricsServer = Metrics.serve(Integer.parseInt(value));
+                case "--metrics-file" -> Metrics.dumpPeriodically(value, METRICS_DUMP_SECONDS);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
         FoodOrderingSystem foodOrderingSystem = new FoodOrderingSystem();
-        foodOrderingSystem.run();
+        try {
+            if (servePort >= 0) {
+                foodOrderingSystem.serve(servePort);
+            } else {
+                foodOrderingSystem.run();
+            }
+        } finally {
+            if (metricsServer != null) {
+                metricsServer.stop(0);
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,3 @@
+public interface IMemberIdAllocator {
+    String nextMemberId();
+}
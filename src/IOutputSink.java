@@ -0,0 +1,4 @@
+public interface IOutputSink {
+    void write(String text);
+    void flush();
+}
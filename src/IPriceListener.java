@@ -0,0 +1,3 @@
+public interface IPriceListener {
+    void priceChanged(MenuItem menuItem, long oldPrice, long newPrice);
+}
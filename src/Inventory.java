@@ -0,0 +1,105 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Stock counters for one restaurant, one int per menu item at a dense slot.
+// Counters live in fixed-size chunks that are never copied, so growing the
+// inventory cannot lose an update made concurrently on an existing slot.
+public class Inventory {
+    private static final int CHUNK_BITS = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile AtomicIntegerArray[] chunks;
+    private volatile MenuItem[] slotItems;
+    private int slotCount;
+
+    // Constructor
+    public Inventory() {
+        this.chunks = new AtomicIntegerArray[] { new AtomicIntegerArray(CHUNK_SIZE) };
+        this.slotItems = new MenuItem[CHUNK_SIZE];
+    }
+
+    // Method to give an item a slot, or return the one it already has
+    public synchronized int register(MenuItem menuItem) {
+        int slot = slotOf(menuItem);
+        if (slot >= 0) {
+            return slot;
+        }
+
+        slot = slotCount++;
+        if (slot >> CHUNK_BITS == chunks.length) {
+            AtomicIntegerArray[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = new AtomicIntegerArray(CHUNK_SIZE);
+            chunks = grown;
+        }
+        MenuItem[] items = slot < slotItems.length ? slotItems : Arrays.copyOf(slotItems, slotItems.length * 2);
+        items[slot] = menuItem;
+        slotItems = items;
+        menuItem.setStockSlot(slot);
+        return slot;
+    }
+
+    // Method to find the item's slot in this inventory, or -1 if it has none here
+    public int slotOf(MenuItem menuItem) {
+        int slot = menuItem.getStockSlot();
+        MenuItem[] items = slotItems;
+        return slot >= 0 && slot < items.length && items[slot] == menuItem ? slot : -1;
+    }
+
+    // Method to read the stock of an item
+    public int get(MenuItem menuItem) {
+        int slot = slotOf(menuItem);
+        return slot < 0 ? 0 : counter(slot).get(slot & CHUNK_MASK);
+    }
+
+    // Method to check that at least the quantity is in stock
+    public boolean isAvailable(MenuItem menuItem, int quantity) {
+        return get(menuItem) >= quantity;
+    }
+
+    // Method to add to (or, with a negative quantity, take from) an item's stock unless it would go negative
+    public boolean tryAdjust(MenuItem menuItem, int quantity) {
+        int slot = slotOf(menuItem);
+        if (slot < 0) {
+            if (quantity < 0) {
+                return false;
+            }
+            slot = register(menuItem);
+        }
+
+        AtomicIntegerArray counter = counter(slot);
+        int index = slot & CHUNK_MASK;
+        while (true) {
+            int current = counter.get(index);
+            int updated = current + quantity;
+            if (updated < 0) {
+                return false;
+            }
+            if (counter.compareAndSet(index, current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    // Method to take as much of the quantity as is in stock, as one atomic step; returns the amount taken
+    public int takeUpTo(MenuItem menuItem, int quantity) {
+        int slot = slotOf(menuItem);
+        if (slot < 0 || quantity <= 0) {
+            return 0;
+        }
+
+        AtomicIntegerArray counter = counter(slot);
+        int index = slot & CHUNK_MASK;
+        while (true) {
+            int current = counter.get(index);
+            int taken = Math.min(current, quantity);
+            if (taken <= 0 || counter.compareAndSet(index, current, current - taken)) {
+                return Math.max(taken, 0);
+            }
+        }
+    }
+
+    private AtomicIntegerArray counter(int slot) {
+        return chunks[slot >> CHUNK_BITS];
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear latency histogram in the style of HdrHistogram. Each power of two
+// is split into 64 buckets, so recorded values keep about 1.5% precision.
+// Recording is lock-free and safe from any number of threads.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_BUCKET_BITS = SUB_BUCKET_BITS - 1;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) << HALF_BUCKET_BITS;
+
+    private final AtomicLongArray counts;
+    private final LongAdder total;
+    private final LongAdder sum;
+    private final AtomicLong max;
+
+    // Constructor
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.total = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new AtomicLong();
+    }
+
+    // Method to record one value, such as a latency in nanoseconds
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        total.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return total.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = total.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    // Method to find the value at a percentile, such as 99.9
+    public long getPercentile(double percentile) {
+        long count = total.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(bucketValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - HALF_BUCKET_BITS;
+        return (shift << HALF_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    // Smallest value that lands in a bucket
+    private static long bucketValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >> HALF_BUCKET_BITS) - 1;
+        return (long) (index - (shift << HALF_BUCKET_BITS)) << shift;
+    }
+}
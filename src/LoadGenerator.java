@@ -0,0 +1,409 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Load generator that drives the ordering logic end to end through
+// OrderingSession. Each simulated customer runs on its own virtual thread and
+// replays sessions back to back until the time is up. Latency is reported per
+// operation, together with the rate of confirmed orders.
+//
+// Sessions are synthetic (register, browse, add to cart, checkout, history)
+// unless a script is given. A script holds one step per line, with sessions
+// separated by blank lines:
+//
+//   register
+//   signin 12345
+//   browse 1
+//   add 2 Cola
+//   checkout
+//   history
+//
+// Usage: java LoadGenerator [--customers 100] [--seconds 10] [--warmup 2]
+//        [--restaurants 10] [--menu 50] [--cart 3] [--catalogue catalogue.bin]
+//        [--script sessions.txt] [--report report.json] [--shards 4]
+//
+// Checkouts go through the order pipeline, as they do in the console, so its
+// queues, batched log writes and per-stage metrics are under the same load.
+// With --shards, they are processed on that many restaurant shards instead.
+public class LoadGenerator {
+    private static final PrintStream REPORT = System.out;
+    private static final String[] OPERATIONS = {"register", "signin", "browse", "add", "checkout", "history"};
+    private static final int INITIAL_STOCK = 1_000_000;
+
+    private final RestaurantRegistry restaurants;
+    private final CustomerMap customerMap;
+    private final CustomerJournal customerJournal;
+    private final IMemberIdAllocator memberIdAllocator;
+    private final OrderLog orderLog;
+    private final OrderPipeline orderPipeline;
+    private final List<List<String>> script;
+    private final int cartSize;
+    private final Map<String, LatencyHistogram> latencies;
+    private final Map<String, LongAdder> failures;
+    private final LongAdder ordersPlaced;
+    private final AtomicLong registrations;
+    private ShardedOrderProcessor shardedProcessor;
+
+    // Constructor
+    public LoadGenerator(RestaurantRegistry restaurants, Path workDirectory, List<List<String>> script, int cartSize) {
+        String customersFile = workDirectory.resolve("customers.txt").toString();
+        this.restaurants = restaurants;
+        this.customerMap = new CustomerMap();
+        this.customerJournal = new CustomerJournal(customersFile, customerMap);
+        this.memberIdAllocator = MemberIdAllocator.wide(customersFile, customerMap, 1000);
+        this.orderLog = new OrderLog(workDirectory.resolve("orders").toString());
+        this.orderPipeline = new OrderPipeline(orderLog, OrderPipeline.DEFAULT_QUEUE_CAPACITY);
+        this.script = script;
+        this.cartSize = cartSize;
+        this.latencies = new LinkedHashMap<>();
+        this.failures = new LinkedHashMap<>();
+        for (String operation : OPERATIONS) {
+            latencies.put(operation, new LatencyHistogram());
+            failures.put(operation, new LongAdder());
+        }
+        this.ordersPlaced = new LongAdder();
+        this.registrations = new AtomicLong();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int customers = 100;
+        int seconds = 10;
+        int warmupSeconds = 2;
+        int restaurantCount = 10;
+        int menuSize = 50;
+        int cartSize = 3;
+        String catalogueFile = null;
+        String scriptFile = null;
+        String reportFile = null;
+        int shards = 0;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--customers" -> customers = Integer.parseInt(value);
+                case "--seconds" -> seconds = Integer.parseInt(value);
+                case "--warmup" -> warmupSeconds = Integer.parseInt(value);
+                case "--restaurants" -> restaurantCount = Integer.parseInt(value);
+                case "--menu" -> menuSize = Integer.parseInt(value);
+                case "--cart" -> cartSize = Integer.parseInt(value);
+                case "--catalogue" -> catalogueFile = value;
+                case "--script" -> scriptFile = value;
+                case "--report" -> reportFile = value;
+                case "--shards" -> shards = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        // The ordering code prints as it goes; keep that out of the measurements and the report
+        Console.setDefaultSinks(() -> Console.NO_OP);
+
+        RestaurantRegistry restaurants = catalogueFile == null ? null : CatalogueSnapshot.load(catalogueFile);
+        if (restaurants == null) {
+            restaurants = createCatalogue(restaurantCount, menuSize);
+        }
+        List<List<String>> script = scriptFile == null ? null : readScript(Paths.get(scriptFile));
+
+        Path workDirectory = Files.createTempDirectory("load-generator");
+        try {
+            LoadGenerator generator = new LoadGenerator(restaurants, workDirectory, script, cartSize);
+            if (shards > 0) {
+                generator.setShardedProcessor(new ShardedOrderProcessor(shards, generator.orderLog));
+            }
+            generator.run(customers, warmupSeconds);
+            generator.reset();
+            long elapsedNanos = generator.run(customers, seconds);
+            generator.printReport(customers, elapsedNanos);
+            if (reportFile != null) {
+                Files.writeString(Paths.get(reportFile), generator.toJson(customers, elapsedNanos), StandardCharsets.UTF_8);
+            }
+            generator.close();
+        } finally {
+            deleteRecursively(workDirectory);
+        }
+    }
+
+    // Method to process checkouts on restaurant shards rather than on the customers' threads
+    public void setShardedProcessor(ShardedOrderProcessor shardedProcessor) {
+        this.shardedProcessor = shardedProcessor;
+    }
+
+    // Method to run the given number of simulated customers until the time is up; returns the elapsed time
+    public long run(int customers, int seconds) {
+        long begin = System.nanoTime();
+        long deadline = begin + seconds * 1_000_000_000L;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < customers; c++) {
+                int customer = c;
+                executor.execute(() -> {
+                    long sessionNumber = 0;
+                    while (System.nanoTime() < deadline) {
+                        OrderingSession session = new OrderingSession(restaurants, customerMap, memberIdAllocator, customerJournal, orderLog, orderPipeline);
+                        if (script == null) {
+                            runSyntheticSession(session, customer, sessionNumber);
+                        } else {
+                            runScriptedSession(session, script.get((int) ((customer + sessionNumber) % script.size())));
+                        }
+                        sessionNumber++;
+                    }
+                });
+            }
+        }
+        return System.nanoTime() - begin;
+    }
+
+    // Method to run one session of every operation: register, browse, add to cart, checkout and read the history
+    private void runSyntheticSession(OrderingSession session, int customer, long sessionNumber) {
+        boolean registered = time("register", () -> session.registerMember(
+                "Load Customer " + registrations.incrementAndGet(), "0123456789", "No " + customer + " Jalan Load") != null);
+        if (!registered) {
+            return;
+        }
+        List<Restaurant> listed = restaurants.list();
+        if (listed.isEmpty()) {
+            return;
+        }
+        Restaurant restaurant = listed.get((int) ((customer + sessionNumber) % listed.size()));
+        if (!time("browse", () -> browse(session, restaurant.getRestaurantId()))) {
+            return;
+        }
+        List<MenuItem> menu = restaurant.getMenu();
+        for (int i = 0; i < cartSize && !menu.isEmpty(); i++) {
+            String itemName = menu.get((int) ((customer * 31 + sessionNumber * 7 + i) % menu.size())).getItemName();
+            time("add", () -> session.addToCart(itemName, 1));
+        }
+        boolean ordered = time("checkout", () -> checkout(session));
+        time("history", () -> history(session, ordered));
+    }
+
+    // Method to replay one recorded session, stopping at the first step that fails
+    private void runScriptedSession(OrderingSession session, List<String> steps) {
+        boolean ordered = false;
+        for (String step : steps) {
+            String[] parts = step.split(" ", 3);
+            boolean orderedBefore = ordered;
+            boolean succeeded = switch (parts[0]) {
+                case "register" -> time("register", () -> session.registerMember(
+                        parts.length > 1 ? step.substring(step.indexOf(' ') + 1) + " " + registrations.incrementAndGet()
+                                : "Load Customer " + registrations.incrementAndGet(),
+                        "0123456789", "Jalan Load") != null);
+                case "signin" -> time("signin", () -> session.signIn(parts[1]) != null);
+                case "browse" -> time("browse", () -> browse(session, Integer.parseInt(parts[1])));
+                case "add" -> time("add", () -> session.addToCart(parts[2], Integer.parseInt(parts[1])));
+                case "checkout" -> ordered = time("checkout", () -> checkout(session));
+                case "history" -> time("history", () -> history(session, orderedBefore));
+                default -> throw new IllegalArgumentException("Unknown script step: " + step);
+            };
+            if (!succeeded) {
+                return;
+            }
+        }
+    }
+
+    // Method to select a restaurant and read its menu the way the console lists it
+    private static boolean browse(OrderingSession session, int restaurantId) {
+        Restaurant restaurant = session.selectRestaurant(restaurantId);
+        if (restaurant == null) {
+            return false;
+        }
+        long total = 0;
+        for (MenuItem menuItem : restaurant.getMenu()) {
+            total += menuItem.getPrice();
+        }
+        return total >= 0;
+    }
+
+    // Method to read the first page of history; once the session has confirmed an order, an empty page is a failure
+    private static boolean history(OrderingSession session, boolean ordered) {
+        List<OrderRecord> orders = session.getOrderHistory(0, FoodOrderingSystem.HISTORY_PAGE_SIZE);
+        return !ordered || !orders.isEmpty();
+    }
+
+    private boolean checkout(OrderingSession session) {
+        Order order = shardedProcessor == null ? session.checkout() : session.checkout(shardedProcessor);
+        if (order == null) {
+            return false;
+        }
+        ordersPlaced.increment();
+        // Put the stock back so a long run never sells out
+        Restaurant restaurant = session.getRestaurant();
+        if (shardedProcessor == null) {
+            for (CartItem item : order.getItems()) {
+                restaurant.updateInventory(item.getMenuItem(), item.getQuantity());
+            }
+            return true;
+        }
+        List<CompletableFuture<Void>> restocks = new ArrayList<>();
+        for (CartItem item : order.getItems()) {
+            restocks.add(shardedProcessor.updateInventory(restaurant, item.getMenuItem(), item.getQuantity()));
+        }
+        for (CompletableFuture<Void> restock : restocks) {
+            try {
+                restock.join();
+            } catch (CompletionException e) {
+                e.getCause().printStackTrace();
+            }
+        }
+        return true;
+    }
+
+    // Operation that reports whether it succeeded
+    private interface Step {
+        boolean run();
+    }
+
+    private boolean time(String operation, Step step) {
+        long begin = System.nanoTime();
+        boolean succeeded = step.run();
+        latencies.get(operation).record(System.nanoTime() - begin);
+        if (!succeeded) {
+            failures.get(operation).increment();
+        }
+        return succeeded;
+    }
+
+    // Method to clear the results gathered so far, after the warm-up
+    public void reset() {
+        for (String operation : OPERATIONS) {
+            latencies.get(operation).reset();
+            failures.get(operation).reset();
+        }
+        ordersPlaced.reset();
+    }
+
+    public void close() {
+        if (shardedProcessor != null) {
+            shardedProcessor.close();
+        }
+        orderPipeline.close();
+        customerJournal.close();
+        orderLog.close();
+    }
+
+    // Method to print the results as a table
+    public void printReport(int customers, long elapsedNanos) {
+        double elapsedSeconds = elapsedNanos / 1_000_000_000.0;
+        REPORT.printf("%d customers for %.1f s: %d orders, %.1f orders/s%n",
+                customers, elapsedSeconds, ordersPlaced.sum(), ordersPlaced.sum() / elapsedSeconds);
+        REPORT.printf("%-9s %10s %8s %12s %12s %12s %12s%n", "operation", "count", "failed", "p50 us", "p99 us", "p99.9 us", "max us");
+        for (String operation : OPERATIONS) {
+            LatencyHistogram histogram = latencies.get(operation);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            REPORT.printf("%-9s %10d %8d %12.1f %12.1f %12.1f %12.1f%n", operation, histogram.getCount(),
+                    failures.get(operation).sum(), micros(histogram.getPercentile(50)), micros(histogram.getPercentile(99)),
+                    micros(histogram.getPercentile(99.9)), micros(histogram.getMax()));
+        }
+    }
+
+    // Method to render the results as JSON
+    public String toJson(int customers, long elapsedNanos) {
+        double elapsedSeconds = elapsedNanos / 1_000_000_000.0;
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"customers\": ").append(customers).append(",\n");
+        json.append("  \"seconds\": ").append(format(elapsedSeconds)).append(",\n");
+        json.append("  \"orders\": ").append(ordersPlaced.sum()).append(",\n");
+        json.append("  \"ordersPerSecond\": ").append(format(ordersPlaced.sum() / elapsedSeconds)).append(",\n");
+        json.append("  \"operations\": {");
+        boolean first = true;
+        for (String operation : OPERATIONS) {
+            LatencyHistogram histogram = latencies.get(operation);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            json.append(first ? "\n" : ",\n");
+            first = false;
+            json.append("    \"").append(operation).append("\": {")
+                    .append("\"count\": ").append(histogram.getCount())
+                    .append(", \"failed\": ").append(failures.get(operation).sum())
+                    .append(", \"p50Nanos\": ").append(histogram.getPercentile(50))
+                    .append(", \"p99Nanos\": ").append(histogram.getPercentile(99))
+                    .append(", \"p999Nanos\": ").append(histogram.getPercentile(99.9))
+                    .append(", \"maxNanos\": ").append(histogram.getMax())
+                    .append('}');
+        }
+        json.append("\n  }\n}\n");
+        return json.toString();
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    // Method to build restaurants with plenty of stock when no catalogue is given
+    private static RestaurantRegistry createCatalogue(int restaurantCount, int menuSize) {
+        RestaurantRegistry restaurants = new RestaurantRegistry();
+        for (int r = 0; r < restaurantCount; r++) {
+            Restaurant restaurant = new Restaurant("Load Restaurant " + (r + 1));
+            List<MenuItem> menu = new ArrayList<>(menuSize);
+            for (int i = 0; i < menuSize; i++) {
+                menu.add(i % 3 == 0
+                        ? new DrinkItem("Drink " + i, 290 + i % 10 * 100, "Load drink", "Soft Drink")
+                        : new FoodItem("Dish " + i, 990 + i % 10 * 100, "Load dish", "Western"));
+            }
+            restaurant.setMenu(menu);
+            for (MenuItem menuItem : menu) {
+                restaurant.updateInventory(menuItem, INITIAL_STOCK);
+            }
+            restaurant.addSpecialOffer(new SpecialOffer("10% Off on All Soft Drink", 10.0, "Soft Drink"));
+            restaurants.add(restaurant);
+        }
+        return restaurants;
+    }
+
+    // Method to read a script of sessions separated by blank lines
+    private static List<List<String>> readScript(Path file) throws IOException {
+        List<List<String>> sessions = new ArrayList<>();
+        List<String> steps = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String step = line.trim();
+            if (step.isEmpty() || step.startsWith("#")) {
+                if (step.isEmpty() && !steps.isEmpty()) {
+                    sessions.add(steps);
+                    steps = new ArrayList<>();
+                }
+                continue;
+            }
+            steps.add(step);
+        }
+        if (!steps.isEmpty()) {
+            sessions.add(steps);
+        }
+        if (sessions.isEmpty()) {
+            throw new IllegalArgumentException(file + " holds no sessions");
+        }
+        return sessions;
+    }
+
+    private static void deleteRecursively(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+public abstract class MemberIdAllocator implements IMemberIdAllocator {
+    public static final int DEFAULT_WIDTH = 5;
+    public static final int WIDE_WIDTH = 10;
+
+    private final Path highWaterMarkPath;
+    private final int width;
+    protected final long maxId;
+
+    // Constructor
+    protected MemberIdAllocator(String filename, int width) {
+        if (width < 1 || width > 18) {
+            throw new IllegalArgumentException("Member ID width must be between 1 and 18 digits.");
+        }
+        this.highWaterMarkPath = Paths.get(filename + ".id");
+        this.width = width;
+        this.maxId = (long) Math.pow(10, width) - 1;
+    }
+
+    // Method to hand out IDs one by one, persisting the high-water mark on every allocation
+    public static MemberIdAllocator sequential(String filename, Map<String, Customer> customerMap) {
+        return new Sequential(filename, customerMap, DEFAULT_WIDTH);
+    }
+
+    // Method to hand out IDs from blocks, persisting the high-water mark once per block
+    public static MemberIdAllocator blockLeased(String filename, Map<String, Customer> customerMap, int blockSize) {
+        return new BlockLeased(filename, customerMap, DEFAULT_WIDTH, blockSize);
+    }
+
+    // Method to hand out block-leased IDs from a wider number space
+    public static MemberIdAllocator wide(String filename, Map<String, Customer> customerMap, int blockSize) {
+        return new BlockLeased(filename, customerMap, WIDE_WIDTH, blockSize);
+    }
+
+    // Method to find where allocation resumes: past both the stored mark and every loaded ID
+    protected long loadHighWaterMark(Map<String, Customer> customerMap) {
+        long highWaterMark = 0;
+        if (Files.exists(highWaterMarkPath)) {
+            try {
+                highWaterMark = Long.parseLong(Files.readString(highWaterMarkPath, StandardCharsets.UTF_8).trim());
+            } catch (IOException | NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+        for (String memberId : customerMap.keySet()) {
+            try {
+                highWaterMark = Math.max(highWaterMark, Long.parseLong(memberId));
+            } catch (NumberFormatException e) {
+                // Not an allocated ID, cannot collide with one
+            }
+        }
+        return highWaterMark;
+    }
+
+    // Method to write the high-water mark atomically next to the customers file
+    protected void storeHighWaterMark(long highWaterMark) {
+        Path temporaryPath = Paths.get(highWaterMarkPath + ".tmp");
+        try {
+            Files.writeString(temporaryPath, Long.toString(highWaterMark), StandardCharsets.UTF_8);
+            Files.move(temporaryPath, highWaterMarkPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected void checkCapacity(long id) {
+        if (id > maxId) {
+            throw new IllegalStateException("No member IDs left with " + width + " digits.");
+        }
+    }
+
+    // Method to zero-pad an ID to the allocator's width
+    protected String format(long id) {
+        char[] digits = new char[width];
+        for (int i = width - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + id % 10);
+            id /= 10;
+        }
+        return new String(digits);
+    }
+
+    private static class Sequential extends MemberIdAllocator {
+        private long lastId;
+
+        Sequential(String filename, Map<String, Customer> customerMap, int width) {
+            super(filename, width);
+            this.lastId = loadHighWaterMark(customerMap);
+        }
+
+        @Override
+        public synchronized String nextMemberId() {
+            long id = lastId + 1;
+            checkCapacity(id);
+            storeHighWaterMark(id);
+            lastId = id;
+            return format(id);
+        }
+    }
+
+    private static class BlockLeased extends MemberIdAllocator {
+        private final int blockSize;
+        private long nextId;
+        private long leaseEnd;
+
+        BlockLeased(String filename, Map<String, Customer> customerMap, int width, int blockSize) {
+            super(filename, width);
+            if (blockSize < 1) {
+                throw new IllegalArgumentException("Block size must be positive.");
+            }
+            this.blockSize = blockSize;
+            this.leaseEnd = loadHighWaterMark(customerMap);
+            this.nextId = leaseEnd + 1;
+        }
+
+        @Override
+        public synchronized String nextMemberId() {
+            if (nextId > leaseEnd) {
+                checkCapacity(nextId);
+                // IDs left in a lease when the process stops are skipped, never reused
+                long newLeaseEnd = Math.min(leaseEnd + blockSize, maxId);
+                storeHighWaterMark(newLeaseEnd);
+                leaseEnd = newLeaseEnd;
+            }
+            return format(nextId++);
+        }
+    }
+}
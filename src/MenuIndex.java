@@ -0,0 +1,83 @@
+// Case-insensitive open-addressing table from item name to menu item.
+// Lookups hash and compare the name in place, so they do not allocate.
+public class MenuIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] names;
+    private MenuItem[] items;
+    private int size;
+
+    // Constructor
+    public MenuIndex() {
+        this.names = new String[INITIAL_CAPACITY];
+        this.items = new MenuItem[INITIAL_CAPACITY];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Method to find an item by name, ignoring case
+    public MenuItem get(String itemName) {
+        if (itemName == null) {
+            return null;
+        }
+        int slot = find(itemName);
+        return slot < 0 ? null : items[slot];
+    }
+
+    // Method to index an item under its current name unless that name is taken
+    public boolean putIfAbsent(MenuItem menuItem) {
+        String itemName = menuItem.getItemName();
+        if (find(itemName) >= 0) {
+            return false;
+        }
+        if ((size + 1) * 2 > names.length) {
+            resize(names.length * 2);
+        }
+        insert(names, items, itemName, menuItem);
+        size++;
+        return true;
+    }
+
+    private int find(String itemName) {
+        int mask = names.length - 1;
+        for (int slot = hash(itemName) & mask; names[slot] != null; slot = (slot + 1) & mask) {
+            if (names[slot].equalsIgnoreCase(itemName)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        String[] resizedNames = new String[capacity];
+        MenuItem[] resizedItems = new MenuItem[capacity];
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null) {
+                insert(resizedNames, resizedItems, names[i], items[i]);
+            }
+        }
+        names = resizedNames;
+        items = resizedItems;
+    }
+
+    private static void insert(String[] names, MenuItem[] items, String itemName, MenuItem menuItem) {
+        int mask = names.length - 1;
+        int slot = hash(itemName) & mask;
+        while (names[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        names[slot] = itemName;
+        items[slot] = menuItem;
+    }
+
+    // Hash that agrees with equalsIgnoreCase: names differing only in case hash the same
+    private static int hash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return h ^ (h >>> 16);
+    }
+}
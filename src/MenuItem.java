@@ -1,13 +1,26 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+// Fields are volatile because sessions read them while the admin edits them.
+// They are live: every menu snapshot holding the item sees an edit at once,
+// and the edit publishes a new menu version only to signal the change.
 abstract class MenuItem {
-    private String itemName;
-    private double price;
-    private String description;
+    private volatile String itemName;
+    private volatile long price; // in cents
+    private volatile String description;
+    private volatile Restaurant restaurant;
+    private int stockSlot = -1;
+    private Set<IPriceListener> priceListeners;
 
     // Constructor
-    public MenuItem(String itemName, double price, String description) {
+    public MenuItem(String itemName, long price, String description) {
         this.itemName = itemName;
         this.price = price;
         this.description = description;
+        changed();
     }
 
     // Getters and Setters
@@ -15,15 +28,29 @@ abstract class MenuItem {
         return itemName;
     }
     public void setItemName(String itemName) {
-        this.itemName = itemName;
+        Restaurant owner = restaurant;
+        if (owner != null && !itemName.equalsIgnoreCase(this.itemName)) {
+            // The new name and the menu indexed under it are published together
+            owner.reindexMenuItem(() -> this.itemName = itemName);
+        } else {
+            this.itemName = itemName;
+            changed();
+        }
     }
 
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
-    public void setPrice(double price) {
+    public void setPrice(long price) {
+        long oldPrice = this.price;
         this.price = price;
+        changed();
+        if (oldPrice != price) {
+            for (IPriceListener listener : getPriceListeners()) {
+                listener.priceChanged(this, oldPrice, price);
+            }
+        }
     }
 
     public String getDescription() {
@@ -31,53 +58,92 @@ abstract class MenuItem {
     }
     public void setDescription(String description) {
         this.description = description;
+        changed();
+    }
+
+    // Set by the restaurant whose menu holds this item so that renames reach its index
+    void setRestaurant(Restaurant restaurant) {
+        this.restaurant = restaurant;
+    }
+
+    // Restaurant whose menu holds this item, or null once it is taken off the menu
+    Restaurant getRestaurant() {
+        return restaurant;
+    }
+
+    // Method to publish a new menu version after a field of this item changed
+    void changed() {
+        Restaurant owner = restaurant;
+        if (owner != null) {
+            owner.menuItemChanged();
+        }
+    }
+
+    // Method to be told when the price changes; listeners are held weakly so abandoned carts are not kept alive
+    public synchronized void addPriceListener(IPriceListener listener) {
+        if (priceListeners == null) {
+            priceListeners = Collections.newSetFromMap(new WeakHashMap<>());
+        }
+        priceListeners.add(listener);
+    }
+
+    public synchronized void removePriceListener(IPriceListener listener) {
+        if (priceListeners != null) {
+            priceListeners.remove(listener);
+        }
+    }
+
+    private synchronized List<IPriceListener> getPriceListeners() {
+        return priceListeners == null ? Collections.emptyList() : new ArrayList<>(priceListeners);
+    }
+
+    // Slot of this item's stock counter in its restaurant's inventory
+    int getStockSlot() {
+        return stockSlot;
+    }
+    void setStockSlot(int stockSlot) {
+        this.stockSlot = stockSlot;
     }
 
     // Method to handle menu item while ordering
     public void handleMenuItemSelection(Restaurant restaurant, Cart cart, MenuItem menuItem, String itemName, Integer itemQuantity) {
         if (itemQuantity > 0) {
-            if (restaurant.isItemAvailable(menuItem, itemQuantity)) {
-                restaurant.updateInventory(menuItem, -itemQuantity);
+            if (restaurant.isItemAvailable(menuItem, cart.getQuantity(menuItem) + itemQuantity)) {
                 cart.addItem(new CartItem(menuItem, itemQuantity));
-                System.out.println("-----------------------------------");
-                System.out.println("Added " + itemQuantity + " x " + menuItem.getItemName() + " to your cart.");
-                System.out.println("-----------------------------------");
+                Console.println("-----------------------------------");
+                Console.println("Added " + itemQuantity + " x " + menuItem.getItemName() + " to your cart.");
+                Console.println("-----------------------------------");
             } else {
-                System.out.println("-----------------------------------");
-                System.out.println("Item not available in the desired quantity.");
-                System.out.println("-----------------------------------");
+                Console.println("-----------------------------------");
+                Console.println("Item not available in the desired quantity.");
+                Console.println("-----------------------------------");
             }
         } else {
-            System.out.println("-----------------------------------");
-            System.out.println("Invalid quantity. Please enter a positive number.");
-            System.out.println("-----------------------------------");
+            Console.println("-----------------------------------");
+            Console.println("Invalid quantity. Please enter a positive number.");
+            Console.println("-----------------------------------");
         }
     }
 
     // Method to find menu time
     public static MenuItem findMenuItem(Restaurant restaurant, String itemName) {
-        for (MenuItem menuItem : restaurant.getMenu()) {
-            if (menuItem.getItemName().equalsIgnoreCase(itemName)) {
-                return menuItem;
-            }
-        }
-        return null;
+        return restaurant.findMenuItem(itemName);
     }
 
     public static void displayMenuItems(Restaurant restaurant) {
-        System.out.println("Menu Items in " + restaurant.getRestaurantName() + ":");
+        Console.println("Menu Items in " + restaurant.getRestaurantName() + ":");
         for (MenuItem menuItem : restaurant.getMenu()) {
-            System.out.println("  " + menuItem.getItemName());
+            Console.println("  " + menuItem.getItemName());
         }
-        System.out.println("-----------------------------------");
+        Console.println("-----------------------------------");
     }
 }
 
 class FoodItem extends MenuItem {
-    private String cuisineType;
+    private volatile String cuisineType;
 
     // Constructor
-    public FoodItem(String name, double price, String description, String cuisineType) {
+    public FoodItem(String name, long price, String description, String cuisineType) {
         super(name, price, description);
         this.cuisineType = cuisineType;
     }
@@ -88,14 +154,15 @@ class FoodItem extends MenuItem {
     }
     public void setCuisineType(String cuisineType) {
         this.cuisineType = cuisineType;
+        changed();
     }
 }
 
 class DrinkItem extends MenuItem {
-    private String beverageType;
+    private volatile String beverageType;
 
     // Constructor
-    public DrinkItem(String name, double price, String description, String beverageType) {
+    public DrinkItem(String name, long price, String description, String beverageType) {
         super(name, price, description);
         this.beverageType = beverageType;
     }
@@ -106,5 +173,6 @@ class DrinkItem extends MenuItem {
     }
     public void setBeverageType(String beverageType) {
         this.beverageType = beverageType;
+        changed();
     }
 }
\ No newline at end of file
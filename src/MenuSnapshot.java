@@ -0,0 +1,58 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// One published version of a restaurant's menu. A snapshot is never changed
+// after it is built: edits publish a new one, so readers can hold on to it
+// and iterate or look items up without locking.
+//
+// A snapshot fixes which items are on the menu and the names they are indexed
+// under. The items themselves are shared between snapshots and their fields are
+// live, not versioned: a price, description or type edit shows through every
+// snapshot that holds the item. Such an edit still publishes a new version, so
+// readers comparing versions can tell that something changed.
+public final class MenuSnapshot {
+    static final MenuSnapshot EMPTY = new MenuSnapshot(0, new ArrayList<>());
+
+    private final long version;
+    private final List<MenuItem> items;
+    private final MenuIndex index;
+
+    // Constructor
+    private MenuSnapshot(long version, List<MenuItem> items, MenuIndex index) {
+        this.version = version;
+        this.items = items;
+        this.index = index;
+    }
+
+    private MenuSnapshot(long version, List<MenuItem> items) {
+        this(version, Collections.unmodifiableList(new ArrayList<>(items)), new MenuIndex());
+        for (MenuItem menuItem : this.items) {
+            index.putIfAbsent(menuItem);
+        }
+    }
+
+    // Getters
+    public long getVersion() {
+        return version;
+    }
+
+    public List<MenuItem> getItems() {
+        return items;
+    }
+
+    // Method to find a menu item by name, ignoring case
+    public MenuItem find(String itemName) {
+        return index.get(itemName);
+    }
+
+    // Method to build the next version holding the given items
+    MenuSnapshot withItems(List<MenuItem> items) {
+        return new MenuSnapshot(version + 1, items);
+    }
+
+    // Method to build the next version after an item field changed in a way the index does not see
+    MenuSnapshot next() {
+        return new MenuSnapshot(version + 1, items, index);
+    }
+}
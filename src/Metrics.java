@@ -0,0 +1,104 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Process-wide counters, gauges and latency histograms. Classes look their metrics up
+// once and keep them in static fields, so the hot paths only pay for a
+// LongAdder increment or a histogram record. The current values can be read as
+// text from a local HTTP endpoint or dumped to a file on a schedule.
+public final class Metrics {
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    // Method to get the counter with the given name, creating it on first use
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    // Method to get the latency histogram with the given name, creating it on first use
+    public static LatencyHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    // Method to report a value that is read when the metrics are rendered, such as a queue depth
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    // Method to render every metric as "name value" lines, sorted by name; latencies are in nanoseconds
+    public static String render() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(COUNTERS).entrySet()) {
+            text.append(counter.getKey()).append(' ').append(counter.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, LongSupplier> gauge : new TreeMap<>(GAUGES).entrySet()) {
+            text.append(gauge.getKey()).append(' ').append(gauge.getValue().getAsLong()).append('\n');
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            String name = entry.getKey();
+            LatencyHistogram histogram = entry.getValue();
+            text.append(name).append(".count ").append(histogram.getCount()).append('\n');
+            text.append(name).append(".p50 ").append(histogram.getPercentile(50)).append('\n');
+            text.append(name).append(".p99 ").append(histogram.getPercentile(99)).append('\n');
+            text.append(name).append(".p999 ").append(histogram.getPercentile(99.9)).append('\n');
+            text.append(name).append(".max ").append(histogram.getMax()).append('\n');
+        }
+        return text.toString();
+    }
+
+    // Method to serve the rendered metrics at http://localhost:<port>/metrics
+    public static HttpServer serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return server;
+    }
+
+    // Method to rewrite the given file with the rendered metrics every period, replacing it in one step
+    public static ScheduledExecutorService dumpPeriodically(String filename, long periodSeconds) {
+        Path dumpPath = Paths.get(filename);
+        Path temporaryPath = Paths.get(filename + ".tmp");
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dumper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            try {
+                Files.writeString(temporaryPath, render(), StandardCharsets.UTF_8);
+                Files.move(temporaryPath, dumpPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        return dumper;
+    }
+}
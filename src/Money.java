@@ -0,0 +1,65 @@
+// Money amounts are held as a long number of cents. These helpers convert,
+// discount and format such amounts without floating point.
+public final class Money {
+    private Money() {
+    }
+
+    // Method to parse an amount such as "12.9" or "12.90" exactly
+    public static long parse(String text) {
+        String amount = text.trim();
+        boolean negative = amount.startsWith("-");
+        if (negative) {
+            amount = amount.substring(1);
+        }
+        int point = amount.indexOf('.');
+        String whole = point < 0 ? amount : amount.substring(0, point);
+        String fraction = point < 0 ? "" : amount.substring(point + 1);
+        if (whole.isEmpty() && fraction.isEmpty() || fraction.length() > 2
+                || !isDigits(whole) || !isDigits(fraction)) {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+
+        long cents = (whole.isEmpty() ? 0 : Long.parseLong(whole)) * 100;
+        if (!fraction.isEmpty()) {
+            cents += Integer.parseInt(fraction) * (fraction.length() == 1 ? 10 : 1);
+        }
+        return negative ? -cents : cents;
+    }
+
+    private static boolean isDigits(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Method to take a percentage off an amount, rounding the discount half up to the cent
+    public static long percentOff(long cents, double percent) {
+        return basisPointsOff(cents, Math.round(percent * 100));
+    }
+
+    // Method to take a discount given in hundredths of a percent, rounding half up to the cent
+    public static long basisPointsOff(long cents, long basisPoints) {
+        return cents - Math.floorDiv(cents * basisPoints + 5_000, 10_000);
+    }
+
+    // Method to format cents with two decimal places, such as 1290 to "12.90"
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(12), cents).toString();
+    }
+
+    // Method to append an amount to a builder without going through String.format
+    public static StringBuilder appendTo(StringBuilder builder, long cents) {
+        if (cents < 0) {
+            builder.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        return builder.append(cents / 100)
+                .append('.')
+                .append((char) ('0' + fraction / 10))
+                .append((char) ('0' + fraction % 10));
+    }
+}
@@ -1,23 +1,39 @@
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 public class Order {
     private Customer customer;
     private Restaurant restaurant;
     private List<CartItem> items;
-    private double totalCost;
-    private List<SpecialOffer> applicableOffers;
+    private long totalCost;
 
-    // Constructor with special offers
-    public Order(Customer customer, Restaurant restaurant, List<CartItem> items, List<SpecialOffer> offers) {
+    // Constructor, pricing the items with the restaurant's special offers
+    public Order(Customer customer, Restaurant restaurant, Collection<CartItem> items) {
         this.customer = customer;
         this.restaurant = restaurant;
-        this.items = items;
-        this.applicableOffers = offers;
+        this.items = copyItems(items);
         this.totalCost = calculateTotalCost();
     }
 
+    // Constructor for a cart, reusing the cart's running total when no offers apply
+    public Order(Customer customer, Restaurant restaurant, Cart cart) {
+        this.customer = customer;
+        this.restaurant = restaurant;
+        this.items = copyItems(cart.getItems());
+        PromotionEngine promotions = restaurant.getPromotionEngine();
+        this.totalCost = promotions.hasOffers() ? promotions.price(items) : cart.calculateTotalCost();
+    }
+
+    // Method to snapshot the lines so later changes to the cart do not alter the order
+    private static List<CartItem> copyItems(Collection<CartItem> items) {
+        List<CartItem> copy = new ArrayList<>(items.size());
+        for (CartItem item : items) {
+            copy.add(new CartItem(item.getMenuItem(), item.getQuantity()));
+        }
+        return copy;
+    }
+
     // Getter and Setters
     public Customer getCustomer() {
         return customer;
@@ -29,21 +45,13 @@ public class Order {
     public List<CartItem> getItems() {
         return items;
     }
-    public double getTotalCost() {
+    public long getTotalCost() {
         return totalCost;
     }
 
     // Method to calculate and update the total cost
-    private double calculateTotalCost() {
-        double total = 0.0;
-        for (CartItem cartItem : items) {
-            total += cartItem.getMenuItem().getPrice() * cartItem.getQuantity();
-        }
-
-        for (SpecialOffer offer : applicableOffers) {
-            total = offer.applyOffer(total);
-        }
-
+    private long calculateTotalCost() {
+        long total = restaurant.getPromotionEngine().price(items);
         this.totalCost = total;
         return total;
     }
@@ -51,32 +59,20 @@ public class Order {
     // Method to display order summary
     public static void displayOrderSummary(Cart cart) {
         if (cart.getItems().isEmpty()) {
-            System.out.println("-----------------------------------");
-            System.out.println("No items in the order.");
-            System.out.println("-----------------------------------");
+            Console.println("-----------------------------------");
+            Console.println("No items in the order.");
+            Console.println("-----------------------------------");
             return;
         }
 
-        System.out.println("-----------------------------------");
-        System.out.println("Order Summary:");
-        Map<String, Double> itemSummary = new HashMap<>();
-        Map<String, Integer> itemCount = new HashMap<>();
-
+        Console.println("-----------------------------------");
+        Console.println("Order Summary:");
+        // The cart keeps one line per item, so the lines print as they are
         for (CartItem cartItem : cart.getItems()) {
-            String itemName = cartItem.getMenuItem().getItemName();
-            double itemTotalCost = cartItem.getMenuItem().getPrice() * cartItem.getQuantity();
-            itemCount.put(itemName, itemCount.getOrDefault(itemName, 0) + cartItem.getQuantity());
-            itemSummary.put(itemName, itemSummary.getOrDefault(itemName, 0.0) + itemTotalCost);
-        }
-
-        for (Map.Entry<String, Integer> entry : itemCount.entrySet()) {
-            String itemName = entry.getKey();
-            int quantity = entry.getValue();
-            double totalCost = itemSummary.get(itemName);
-            System.out.println(quantity + " x " + itemName + " - RM" + String.format("%.2f", totalCost));
+            Console.println(cartItem.getQuantity() + " x " + cartItem.getMenuItem().getItemName() + " - RM" + Money.format(cartItem.getSubtotal()));
         }
 
-        System.out.println("Total Cost: RM" + String.format("%.2f", cart.calculateTotalCost()));
-        System.out.println("-----------------------------------");
+        Console.println("Total Cost: RM" + Money.format(cart.calculateTotalCost()));
+        Console.println("-----------------------------------");
     }
 }
\ No newline at end of file
@@ -0,0 +1,303 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Append-only log of confirmed orders, split into segment files. An in-memory
+// index keeps each customer's record positions, so a page of history reads
+// only the records on that page.
+public class OrderLog {
+    private static final long SEGMENT_BYTES = 64L << 20;
+    private static final String SEGMENT_PREFIX = "orders-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final Map<Integer, FileChannel> segments;
+    private final Map<String, Positions> positionsByMember;
+    // Held across the fsync; a virtual thread waiting on it unmounts, where one waiting on a monitor would pin its carrier
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private int currentSegment;
+    private long currentSize;
+
+    // Constructor
+    public OrderLog(String directoryName) {
+        this.directory = Paths.get(directoryName);
+        this.segments = new ConcurrentHashMap<>();
+        this.positionsByMember = new ConcurrentHashMap<>();
+        try {
+            Files.createDirectories(directory);
+            openSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Method to open every existing segment and rebuild the per-customer index from the record headers
+    private void openSegments() throws IOException {
+        TreeMap<Integer, Path> found = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                found.put(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), path);
+            }
+        }
+
+        currentSegment = found.isEmpty() ? 1 : found.lastKey();
+        for (Map.Entry<Integer, Path> entry : found.entrySet()) {
+            FileChannel channel = FileChannel.open(entry.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.put(entry.getKey(), channel);
+            long end = indexSegment(entry.getKey(), channel);
+            if (entry.getKey() == currentSegment) {
+                // Drop a record torn by a crash mid-write
+                channel.truncate(end);
+                currentSize = end;
+            }
+        }
+        if (found.isEmpty()) {
+            segments.put(currentSegment, openSegment(currentSegment));
+        }
+    }
+
+    // Method to read each record's header and remember its position; returns the end of the last whole record.
+    // The header is the record length followed by the member ID, so the rest of the payload is skipped.
+    private long indexSegment(int segment, FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Short.BYTES);
+        ByteBuffer memberId = ByteBuffer.allocate(Short.BYTES + 64);
+        long position = 0;
+        long size = channel.size();
+        while (position + header.capacity() <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(0);
+            int memberIdLength = Short.toUnsignedInt(header.getShort(Integer.BYTES));
+            if (length <= 0 || position + Integer.BYTES + length > size || Short.BYTES + memberIdLength > length) {
+                break;
+            }
+            if (memberId.capacity() < Short.BYTES + memberIdLength) {
+                memberId = ByteBuffer.allocate(Short.BYTES + memberIdLength);
+            }
+            memberId.clear().limit(Short.BYTES + memberIdLength);
+            readFully(channel, memberId, position + Integer.BYTES);
+            String member = new DataInputStream(new ByteArrayInputStream(memberId.array(), 0, memberId.limit())).readUTF();
+            positionsOf(member).add(encode(segment, position));
+            position += Integer.BYTES + length;
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - start) < 0) {
+                throw new IOException("Unexpected end of the order log.");
+            }
+        }
+    }
+
+    private FileChannel openSegment(int segment) throws IOException {
+        return FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    // Method to append a confirmed order and force it to disk
+    public void append(Order order) throws IOException {
+        appendAll(List.of(order));
+    }
+
+    // Method to append several confirmed orders and force them to disk together. Either all of them are
+    // logged or, if a write or the force fails, none are: the log is cut back to where it was and the
+    // orders never reach the index.
+    public void appendAll(List<Order> orders) throws IOException {
+        ByteBuffer[] records = new ByteBuffer[orders.size()];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = encodeRecord(orders.get(i));
+        }
+        long[] positions = new long[records.length];
+        writeLock.lock();
+        try {
+            int startSegment = currentSegment;
+            long startSize = currentSize;
+            try {
+                for (int i = 0; i < records.length; i++) {
+                    positions[i] = write(records[i]);
+                }
+                segments.get(currentSegment).force(false);
+            } catch (IOException e) {
+                rollBack(startSegment, startSize, e);
+                throw e;
+            }
+            // Published only once the records are on disk, and in log order
+            for (int i = 0; i < positions.length; i++) {
+                positionsOf(orders.get(i).getCustomer().getMemberId()).add(positions[i]);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Method to cut the log back to the given end, dropping any segments opened since; the caller holds the lock
+    private void rollBack(int startSegment, long startSize, IOException failure) {
+        try {
+            for (int segment = currentSegment; segment > startSegment; segment--) {
+                FileChannel channel = segments.remove(segment);
+                channel.close();
+                Files.deleteIfExists(segmentPath(segment));
+            }
+            currentSegment = startSegment;
+            currentSize = startSize;
+            segments.get(startSegment).truncate(startSize);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private static ByteBuffer encodeRecord(Order order) throws IOException {
+        StringBuilder itemSummary = new StringBuilder();
+        for (CartItem item : order.getItems()) {
+            if (itemSummary.length() > 0) {
+                itemSummary.append(", ");
+            }
+            itemSummary.append(item.getQuantity()).append(" x ").append(item.getMenuItem().getItemName());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0); // length, filled in below
+        out.writeUTF(order.getCustomer().getMemberId());
+        out.writeUTF(order.getRestaurant().getRestaurantName());
+        out.writeLong(System.currentTimeMillis());
+        out.writeLong(order.getTotalCost());
+        out.writeUTF(itemSummary.toString());
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        record.putInt(0, record.limit() - Integer.BYTES);
+        return record;
+    }
+
+    // Method to write one record at the end of the current segment and return its position; the caller holds
+    // the lock, forces it and indexes it
+    private long write(ByteBuffer record) throws IOException {
+        if (currentSize + record.limit() > SEGMENT_BYTES && currentSize > 0) {
+            segments.get(currentSegment).force(false);
+            currentSegment++;
+            segments.put(currentSegment, openSegment(currentSegment));
+            currentSize = 0;
+        }
+        FileChannel channel = segments.get(currentSegment);
+        long position = currentSize;
+        while (record.hasRemaining()) {
+            channel.write(record, position + record.position());
+        }
+        currentSize += record.limit();
+        return encode(currentSegment, position);
+    }
+
+    // Method to count a customer's logged orders
+    public int countOrders(String memberId) {
+        Positions positions = positionsByMember.get(memberId);
+        return positions == null ? 0 : positions.size();
+    }
+
+    // Method to read one page of a customer's orders, most recent first
+    public List<OrderRecord> getOrderHistory(String memberId, int page, int pageSize) {
+        List<OrderRecord> orders = new ArrayList<>();
+        Positions positions = positionsByMember.get(memberId);
+        if (positions == null) {
+            return orders;
+        }
+
+        long[] onPage = positions.page(page, pageSize);
+        try {
+            for (long position : onPage) {
+                orders.add(read(position));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return orders;
+    }
+
+    private OrderRecord read(long encodedPosition) throws IOException {
+        FileChannel channel = segments.get((int) (encodedPosition >>> 40));
+        long position = encodedPosition & ((1L << 40) - 1);
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        channel.read(header, position);
+        ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+        while (payload.hasRemaining()) {
+            channel.read(payload, position + Integer.BYTES + payload.position());
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+        return new OrderRecord(in.readUTF(), in.readUTF(), in.readLong(), in.readLong(), in.readUTF());
+    }
+
+    // Positions pack the segment number above a 40-bit file offset
+    private static long encode(int segment, long position) {
+        return ((long) segment << 40) | position;
+    }
+
+    private Positions positionsOf(String memberId) {
+        return positionsByMember.computeIfAbsent(memberId, id -> new Positions());
+    }
+
+    public void close() {
+        writeLock.lock();
+        try {
+            for (FileChannel channel : segments.values()) {
+                try {
+                    channel.force(false);
+                    channel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Growable list of one customer's record positions, oldest first
+    private static class Positions {
+        private long[] values = new long[4];
+        private int size;
+
+        synchronized void add(long position) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = position;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long[] page(int page, int pageSize) {
+            int newest = size - 1 - page * pageSize;
+            int count = Math.max(0, Math.min(pageSize, newest + 1));
+            long[] onPage = new long[count];
+            for (int i = 0; i < count; i++) {
+                onPage[i] = values[newest - i];
+            }
+            return onPage;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Order placement split into stages that each run on their own executor:
+// validation, pricing, stock reservation, persistence and confirmation. Stages
+// are joined by bounded queues, so a stage that falls behind fills its queue
+// and the stages before it block until there is room. The blocking reaches
+// submit() last. Persistence drains its queue in batches that share one
+// fsync, so a slow disk costs fewer, larger writes instead of stalling intake
+// straight away.
+//
+// Each stage reports its processed count, queue depth and handling time per
+// batch through Metrics under "pipeline.<stage>".
+public class OrderPipeline {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final int PERSISTENCE_BATCH = 64;
+
+    private final OrderLog orderLog;
+    private final Stage validation;
+    private final Stage pricing;
+    private final Stage reservation;
+    private final Stage persistence;
+    private final Stage confirmation;
+    private volatile boolean closed;
+
+    // Constructor
+    public OrderPipeline(OrderLog orderLog, int queueCapacity) {
+        this.orderLog = orderLog;
+        // Built back to front so each stage knows the one it feeds
+        this.confirmation = new Stage("confirmation", queueCapacity, 1, null, eachJob(this::confirm));
+        this.persistence = new Stage("persistence", queueCapacity, PERSISTENCE_BATCH, confirmation, this::persist);
+        this.reservation = new Stage("reservation", queueCapacity, 1, persistence, eachJob(this::reserve));
+        this.pricing = new Stage("pricing", queueCapacity, 1, reservation, eachJob(this::price));
+        this.validation = new Stage("validation", queueCapacity, 1, pricing, eachJob(this::validate));
+    }
+
+    // Method to queue an order for the cart, blocking while the pipeline is full; the future
+    // completes with the order, or with null if it was rejected, or exceptionally if a stage
+    // failed, in which case its stock has been given back. Stock already reserved for the
+    // cart is taken over instead of being reserved again. Messages go to the caller's console sink.
+    public CompletableFuture<Order> submit(Customer customer, Restaurant restaurant, Cart cart,
+                                           StockReservation stockReservation) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("The order pipeline is closed.");
+        }
+        // The lines are copied so the caller can go on using the cart
+        List<CartItem> items = new ArrayList<>();
+        for (CartItem item : cart.getItems()) {
+            items.add(new CartItem(item.getMenuItem(), item.getQuantity()));
+        }
+        Job job = new Job(customer, restaurant, items, stockReservation, Console.getSink());
+        validation.queue.put(job);
+        return job.result;
+    }
+
+    public CompletableFuture<Order> submit(Customer customer, Restaurant restaurant, Cart cart) throws InterruptedException {
+        return submit(customer, restaurant, cart, null);
+    }
+
+    // Stage 1: the customer is known and every line is still on the menu
+    private void validate(Job job) {
+        boolean valid = job.customer != null && !job.items.isEmpty();
+        for (CartItem item : job.items) {
+            if (item.getQuantity() <= 0 || !job.restaurant.isOnMenu(item.getMenuItem())) {
+                valid = false;
+                break;
+            }
+        }
+        if (!valid) {
+            job.reject("Unable to process the order as some items are no longer on the menu.");
+        }
+    }
+
+    // Stage 2: build the order, pricing it against the restaurant's offers
+    private void price(Job job) {
+        job.order = new Order(job.customer, job.restaurant, job.items);
+    }
+
+    // Stage 3: secure the stock, taking over the cart's reservation or reserving it now; it is
+    // committed only once the order is logged
+    private void reserve(Job job) {
+        job.securedStock = job.restaurant.secureStock(job.order, job.heldStock, job.sink);
+        if (job.securedStock == null) {
+            job.reject(null);
+        }
+    }
+
+    // Stage 4: write the batch to the order log with one fsync
+    private void persist(List<Job> jobs) {
+        if (orderLog == null) {
+            return;
+        }
+        List<Order> orders = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            orders.add(job.order);
+        }
+        try {
+            orderLog.appendAll(orders);
+        } catch (IOException e) {
+            e.printStackTrace();
+            for (Job job : jobs) {
+                job.restaurant.orderNotSaved(job.securedStock, job.sink);
+                job.reject(null);
+            }
+        }
+    }
+
+    // Stage 5: keep the stock and tell the customer
+    private void confirm(Job job) {
+        job.restaurant.confirmOrder(job.order, job.securedStock, job.sink);
+        job.sink.flush();
+    }
+
+    // Method to run a stage's work on each job of a batch, so that one failing order fails alone
+    private static Consumer<List<Job>> eachJob(Consumer<Job> handler) {
+        return jobs -> {
+            for (Job job : jobs) {
+                try {
+                    handler.accept(job);
+                } catch (RuntimeException e) {
+                    job.fail(e);
+                }
+            }
+        };
+    }
+
+    // Method to finish every queued order and stop the stage threads; later submits are refused
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // The marker goes through every stage behind the last real order
+            validation.queue.put(Job.END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Stage stage : new Stage[] {validation, pricing, reservation, persistence, confirmation}) {
+            stage.executor.shutdown();
+            try {
+                stage.executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // One order on its way through the stages
+    private static class Job {
+        static final Job END = new Job(null, null, List.of(), null, Console.NO_OP);
+
+        private final Customer customer;
+        private final Restaurant restaurant;
+        private final List<CartItem> items;
+        private final StockReservation heldStock;
+        private final IOutputSink sink;
+        private final CompletableFuture<Order> result;
+        private final long startTime;
+        private Order order;
+        private StockReservation securedStock;
+        private boolean rejected;
+
+        Job(Customer customer, Restaurant restaurant, List<CartItem> items, StockReservation heldStock, IOutputSink sink) {
+            this.customer = customer;
+            this.restaurant = restaurant;
+            this.items = items;
+            this.heldStock = heldStock;
+            this.sink = sink;
+            this.result = new CompletableFuture<>();
+            this.startTime = System.nanoTime();
+        }
+
+        // Method to stop the order with a message for the customer, or none if one was already given
+        void reject(String message) {
+            rejected = true;
+            releaseStock();
+            if (message != null) {
+                sink.write(message + "\n");
+                sink.write("-----------------------------------\n");
+            }
+            sink.flush();
+            Restaurant.orderProcessed(startTime);
+            result.complete(null);
+        }
+
+        // Method to stop the order because a stage failed
+        void fail(RuntimeException e) {
+            rejected = true;
+            releaseStock();
+            Restaurant.orderProcessed(startTime);
+            result.completeExceptionally(e);
+        }
+
+        void complete() {
+            Restaurant.orderProcessed(startTime);
+            result.complete(order);
+        }
+
+        // Whichever reservation holds the stock is given back; the other one is already settled
+        private void releaseStock() {
+            if (heldStock != null) {
+                heldStock.release();
+            }
+            if (securedStock != null) {
+                securedStock.release();
+            }
+        }
+    }
+
+    // A queue and the single thread that drains it, handing what passes to the next stage
+    private static class Stage {
+        private final BlockingQueue<Job> queue;
+        private final int batchSize;
+        private final Stage next;
+        private final Consumer<List<Job>> handler;
+        private final ExecutorService executor;
+        private final LongAdder processed;
+        private final LatencyHistogram latency;
+
+        Stage(String name, int capacity, int batchSize, Stage next, Consumer<List<Job>> handler) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.batchSize = batchSize;
+            this.next = next;
+            this.handler = handler;
+            this.processed = Metrics.counter("pipeline." + name + ".processed");
+            this.latency = Metrics.histogram("pipeline." + name + ".batch.nanos");
+            Metrics.gauge("pipeline." + name + ".queue", queue::size);
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "order-pipeline-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.execute(this::drain);
+        }
+
+        private void drain() {
+            List<Job> batch = new ArrayList<>(batchSize);
+            try {
+                while (true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, batchSize - 1);
+                    // The end marker is always the last job ever queued
+                    boolean ended = batch.get(batch.size() - 1) == Job.END;
+                    if (ended) {
+                        batch.remove(batch.size() - 1);
+                    }
+                    if (!batch.isEmpty()) {
+                        handle(batch);
+                    }
+                    batch.clear();
+                    if (ended) {
+                        if (next != null) {
+                            next.queue.put(Job.END);
+                        }
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void handle(List<Job> batch) throws InterruptedException {
+            long startTime = System.nanoTime();
+            try {
+                handler.accept(batch);
+            } catch (RuntimeException e) {
+                for (Job job : batch) {
+                    if (!job.rejected) {
+                        job.fail(e);
+                    }
+                }
+            }
+            latency.record(System.nanoTime() - startTime);
+            processed.add(batch.size());
+
+            for (Job job : batch) {
+                if (job.rejected) {
+                    continue;
+                }
+                if (next != null) {
+                    next.queue.put(job);
+                } else {
+                    job.complete();
+                }
+            }
+        }
+    }
+}
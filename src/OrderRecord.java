@@ -0,0 +1,38 @@
+// A confirmed order as read back from the order log
+public class OrderRecord {
+    private final String memberId;
+    private final String restaurantName;
+    private final long placedAt;
+    private final long totalCost; // in cents
+    private final String itemSummary;
+
+    // Constructor
+    public OrderRecord(String memberId, String restaurantName, long placedAt, long totalCost, String itemSummary) {
+        this.memberId = memberId;
+        this.restaurantName = restaurantName;
+        this.placedAt = placedAt;
+        this.totalCost = totalCost;
+        this.itemSummary = itemSummary;
+    }
+
+    // Getters
+    public String getMemberId() {
+        return memberId;
+    }
+
+    public String getRestaurantName() {
+        return restaurantName;
+    }
+
+    public long getPlacedAt() {
+        return placedAt;
+    }
+
+    public long getTotalCost() {
+        return totalCost;
+    }
+
+    public String getItemSummary() {
+        return itemSummary;
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// One customer's session against the shared ordering state. Each session keeps
+// its own customer, restaurant and cart, so sessions can run on separate threads.
+public class OrderingSession {
+    private final RestaurantRegistry restaurants;
+    private final CustomerMap customerMap;
+    private final IMemberIdAllocator memberIdAllocator;
+    private final CustomerJournal customerJournal;
+    private final OrderLog orderLog;
+    private final OrderPipeline orderPipeline;
+    private Customer customer;
+    private Restaurant restaurant;
+    private Cart cart;
+
+    // Constructor
+    public OrderingSession(RestaurantRegistry restaurants, CustomerMap customerMap,
+                           IMemberIdAllocator memberIdAllocator, CustomerJournal customerJournal, OrderLog orderLog,
+                           OrderPipeline orderPipeline) {
+        this.restaurants = restaurants;
+        this.customerMap = customerMap;
+        this.memberIdAllocator = memberIdAllocator;
+        this.customerJournal = customerJournal;
+        this.orderLog = orderLog;
+        this.orderPipeline = orderPipeline;
+    }
+
+    // Getters
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public Restaurant getRestaurant() {
+        return restaurant;
+    }
+
+    public Cart getCart() {
+        return cart;
+    }
+
+    // Method to register a new member and sign in as them; null if the name is taken
+    public Customer registerMember(String name, String contactNumber, String deliveryAddress) {
+        Customer registered = Customer.registerCustomer(customerMap, memberIdAllocator, customerJournal, name, contactNumber, deliveryAddress);
+        if (registered != null) {
+            customer = registered;
+        }
+        return registered;
+    }
+
+    // Method to sign in with a member ID; null if there is no such member
+    public Customer signIn(String memberId) {
+        customer = customerMap.get(memberId);
+        return customer;
+    }
+
+    // Method to choose a restaurant by its ID, starting a new cart
+    public Restaurant selectRestaurant(int restaurantId) {
+        Restaurant selected = restaurants.get(restaurantId);
+        if (selected == null) {
+            return null;
+        }
+        restaurant = selected;
+        cart = new Cart();
+        return restaurant;
+    }
+
+    // Method to add an item to the cart if the restaurant has enough of it
+    public boolean addToCart(String itemName, int quantity) {
+        if (restaurant == null || quantity <= 0) {
+            return false;
+        }
+        MenuItem menuItem = restaurant.findMenuItem(itemName);
+        if (menuItem == null || !restaurant.isItemAvailable(menuItem, cart.getQuantity(menuItem) + quantity)) {
+            return false;
+        }
+        cart.addItem(new CartItem(menuItem, quantity));
+        return true;
+    }
+
+    // Method to place the order for the cart through the order pipeline, waiting for the outcome; null if signed
+    // out, the cart is empty, the order was rejected or the wait was interrupted. A CompletionException means a
+    // stage failed, and the stock has been given back.
+    public Order checkout() {
+        if (customer == null || cart == null || cart.getItems().isEmpty()) {
+            return null;
+        }
+        Order order;
+        try {
+            order = orderPipeline.submit(customer, restaurant, cart).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (order != null) {
+            cart = new Cart();
+        }
+        return order;
+    }
+
+    // Method to place the order for the cart on the restaurant's shard, waiting for the outcome
+    public Order checkout(ShardedOrderProcessor processor) {
+        if (customer == null || cart == null || cart.getItems().isEmpty()) {
+            return null;
+        }
+        Order order = processor.processOrder(customer, restaurant, cart).join();
+        if (order != null) {
+            cart = new Cart();
+        }
+        return order;
+    }
+
+    // Method to read one page of the signed-in customer's logged orders, most recent first
+    public List<OrderRecord> getOrderHistory(int page, int pageSize) {
+        if (customer == null) {
+            return new ArrayList<>();
+        }
+        return orderLog.getOrderHistory(customer.getMemberId(), page, pageSize);
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+// A restaurant's special offers compiled against its menu. Each menu item's
+// discounts are worked out once, at compile time, so pricing a cart is a single
+// pass over its lines however many offers there are.
+//
+// Offers apply in order of priority, highest first. Stackable offers compound
+// with each other. An offer that is not stackable applies only when no higher
+// priority offer has applied to the item, and stops any lower ones.
+//
+// An engine belongs to one restaurant and stays current while that
+// restaurant's menu snapshot, its offer list and the offers themselves are the
+// ones it was compiled from, so an edit to one restaurant never makes another
+// restaurant's engine recompile.
+public class PromotionEngine {
+    private final Restaurant restaurant;
+    private final MenuSnapshot menuSnapshot;
+    private final List<SpecialOffer> publishedOffers;
+    private final int[] offerRevisions;
+    private final List<SpecialOffer> offers;
+    private final List<Predicate<MenuItem>> conditions;
+    private final long[][] discountsBySlot;
+
+    // Constructor
+    private PromotionEngine(Restaurant restaurant) {
+        this.restaurant = restaurant;
+        // What the engine is compiled from is captured first, so a change made while compiling leaves it stale
+        this.menuSnapshot = restaurant.getMenuSnapshot();
+        this.publishedOffers = restaurant.getSpecialOffers();
+        this.offerRevisions = new int[publishedOffers.size()];
+        for (int i = 0; i < offerRevisions.length; i++) {
+            offerRevisions[i] = publishedOffers.get(i).getRevision();
+        }
+        this.offers = new ArrayList<>(publishedOffers);
+        this.offers.sort(Comparator.comparingInt(SpecialOffer::getPriority).reversed());
+        this.conditions = new ArrayList<>(offers.size());
+        for (SpecialOffer offer : offers) {
+            conditions.add(offer.compileCondition());
+        }
+
+        // Per-item eligibility, indexed by the item's stock slot
+        List<MenuItem> menu = menuSnapshot.getItems();
+        int slots = 0;
+        for (MenuItem menuItem : menu) {
+            slots = Math.max(slots, restaurant.getInventory().slotOf(menuItem) + 1);
+        }
+        this.discountsBySlot = new long[slots][];
+        for (MenuItem menuItem : menu) {
+            int slot = restaurant.getInventory().slotOf(menuItem);
+            if (slot >= 0) {
+                discountsBySlot[slot] = resolveDiscounts(menuItem);
+            }
+        }
+    }
+
+    // Method to compile the current offers of a restaurant against its current menu
+    public static PromotionEngine compile(Restaurant restaurant) {
+        return new PromotionEngine(restaurant);
+    }
+
+    // Method to check that the restaurant's menu and offers are still the ones the engine was compiled from
+    public boolean isCurrent() {
+        if (restaurant.getMenuSnapshot() != menuSnapshot || restaurant.getSpecialOffers() != publishedOffers) {
+            return false;
+        }
+        for (int i = 0; i < offerRevisions.length; i++) {
+            if (publishedOffers.get(i).getRevision() != offerRevisions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean hasOffers() {
+        return !offers.isEmpty();
+    }
+
+    // Method to price order lines after discounts, in one pass
+    public long price(Collection<CartItem> items) {
+        long total = 0;
+        for (CartItem item : items) {
+            long subtotal = item.getSubtotal();
+            for (long basisPoints : discountsFor(item.getMenuItem())) {
+                subtotal = Money.basisPointsOff(subtotal, basisPoints);
+            }
+            total += subtotal;
+        }
+        return total;
+    }
+
+    private long[] discountsFor(MenuItem menuItem) {
+        int slot = restaurant.getInventory().slotOf(menuItem);
+        if (slot >= 0 && slot < discountsBySlot.length && discountsBySlot[slot] != null) {
+            return discountsBySlot[slot];
+        }
+        // Not on the menu when the engine was compiled
+        return resolveDiscounts(menuItem);
+    }
+
+    // Method to apply the stacking and priority rules to one item
+    private long[] resolveDiscounts(MenuItem menuItem) {
+        long[] discounts = new long[offers.size()];
+        int count = 0;
+        for (int i = 0; i < offers.size(); i++) {
+            SpecialOffer offer = offers.get(i);
+            if (!conditions.get(i).test(menuItem)) {
+                continue;
+            }
+            if (!offer.isStackable()) {
+                if (count == 0) {
+                    discounts[count++] = offer.getDiscountBasisPoints();
+                }
+                break;
+            }
+            discounts[count++] = offer.getDiscountBasisPoints();
+        }
+        long[] resolved = new long[count];
+        System.arraycopy(discounts, 0, resolved, 0, count);
+        return resolved;
+    }
+}
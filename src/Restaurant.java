@@ -1,145 +1,502 @@
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Restaurant {
+    // How long reserved stock is held for an order that is neither confirmed nor cancelled
+    public static final long RESERVATION_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    private static final LatencyHistogram PROCESS_ORDER_LATENCY = Metrics.histogram("order.process.nanos");
+    private static final LatencyHistogram PROCESS_BATCH_LATENCY = Metrics.histogram("order.batch.nanos");
+    private static final LatencyHistogram FULFIL_CHECK_LATENCY = Metrics.histogram("order.fulfil_check.nanos");
+    private static final LongAdder ORDERS_CONFIRMED = Metrics.counter("order.confirmed");
+    private static final LongAdder ORDERS_REJECTED_STOCK = Metrics.counter("order.rejected.stock");
+    private static final LongAdder MENU_LOOKUP_HITS = Metrics.counter("menu.lookup.hit");
+    private static final LongAdder MENU_LOOKUP_MISSES = Metrics.counter("menu.lookup.miss");
+    private static final LongAdder INVENTORY_UPDATES = Metrics.counter("inventory.update");
+    private static final LongAdder RESERVATIONS_TAKEN = Metrics.counter("inventory.reserve.ok");
+    private static final LongAdder RESERVATIONS_REFUSED = Metrics.counter("inventory.reserve.refused");
+    private static final LongAdder RESERVATIONS_EXPIRED = Metrics.counter("inventory.reserve.expired");
+
+    private int restaurantId;
     private String restaurantName;
-    private List<MenuItem> menu;
-    private List<SpecialOffer> specialOffers;
-    private Map<MenuItem, Integer> stock;
+    private volatile MenuSnapshot menuSnapshot;
+    private final Object menuLock = new Object();
+    private volatile List<SpecialOffer> specialOffers;
+    private Inventory inventory;
+    private volatile PromotionEngine promotionEngine;
+    private Queue<StockReservation> pendingReservations;
+    // Held by the one thread trimming pendingReservations, so no two threads race to remove the same head
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    // Stock secured for orders on their way to the order log; these never expire and are not queued
+    private final Set<StockReservation> securedReservations = ConcurrentHashMap.newKeySet();
+    private RestaurantRegistry registry;
 
 
     // Constructor
     public Restaurant(String restaurantName) {
         this.restaurantName = restaurantName;
-        this.menu = new ArrayList<>();
-        this.specialOffers = new ArrayList<>();
-        this.stock = new HashMap<>();
+        this.menuSnapshot = MenuSnapshot.EMPTY;
+        this.specialOffers = List.of();
+        this.inventory = new Inventory();
+        this.pendingReservations = new ConcurrentLinkedQueue<>();
     }
 
 
     // Getters and Setters
+    public int getRestaurantId() {
+        return restaurantId;
+    }
+    void setRestaurantId(int restaurantId) {
+        this.restaurantId = restaurantId;
+    }
+
     public String getRestaurantName() {
         return restaurantName;
     }
     public void setRestaurantName(String restaurantName) {
+        String oldName = this.restaurantName;
         this.restaurantName = restaurantName;
+        if (registry != null) {
+            registry.renameRestaurant(this, oldName);
+        }
+        SpecialOffer.offersChanged();
+    }
+
+    // Registry that indexes this restaurant by name, or null if it is not registered
+    void setRegistry(RestaurantRegistry registry) {
+        this.registry = registry;
     }
 
+    // The menu as of the latest published snapshot; the list is read-only
     public List<MenuItem> getMenu() {
-        return menu;
+        return menuSnapshot.getItems();
     }
     public void setMenu(List<MenuItem> menu) {
-        this.menu = menu;
+        synchronized (menuLock) {
+            for (MenuItem menuItem : menuSnapshot.getItems()) {
+                menuItem.setRestaurant(null);
+            }
+            for (MenuItem menuItem : menu) {
+                menuItem.setRestaurant(this);
+                inventory.register(menuItem);
+            }
+            menuSnapshot = menuSnapshot.withItems(menu);
+        }
     }
 
+    // Method to get the current menu version; readers keep using the one they hold while edits publish new ones
+    public MenuSnapshot getMenuSnapshot() {
+        return menuSnapshot;
+    }
+
+    // The offers as last published; the list is read-only and replaced whole on every change
     public List<SpecialOffer> getSpecialOffers() {
         return specialOffers;
     }
     public void setSpecialOffers(List<SpecialOffer> specialOffers) {
-        this.specialOffers = specialOffers;
+        List<SpecialOffer> published = List.copyOf(specialOffers);
+        SpecialOffer.updateOffers(() -> this.specialOffers = published);
+        SpecialOffer.offersChanged();
+    }
+
+    // Method to get the offers compiled against the menu, recompiling them after any change
+    public PromotionEngine getPromotionEngine() {
+        PromotionEngine engine = promotionEngine;
+        if (engine == null || !engine.isCurrent()) {
+            engine = PromotionEngine.compile(this);
+            promotionEngine = engine;
+        }
+        return engine;
     }
 
-    public Map<MenuItem, Integer> getStock() {
-        return stock;
+    public Inventory getInventory() {
+        return inventory;
     }
-    public void setStock(Map<MenuItem, Integer> stock) {
-        this.stock = stock;
+
+    public int getStock(MenuItem item) {
+        return inventory.get(item);
     }
 
     // Method to add item to menu
     public void addToMenu(MenuItem menuItem, int initialStock) {
-        menu.add(menuItem);
+        synchronized (menuLock) {
+            List<MenuItem> menu = new ArrayList<>(menuSnapshot.getItems());
+            menu.add(menuItem);
+            menuItem.setRestaurant(this);
+            inventory.register(menuItem);
+            menuSnapshot = menuSnapshot.withItems(menu);
+        }
         updateInventory(menuItem, initialStock);
     }
 
     // Method to remove item from the menu
     public void removeFromMenu(String itemName) {
-        menu.removeIf(item -> item.getItemName().equalsIgnoreCase(itemName));
+        synchronized (menuLock) {
+            List<MenuItem> menu = new ArrayList<>(menuSnapshot.getItems());
+            menu.removeIf(item -> {
+                if (item.getItemName().equalsIgnoreCase(itemName)) {
+                    item.setRestaurant(null);
+                    return true;
+                }
+                return false;
+            });
+            menuSnapshot = menuSnapshot.withItems(menu);
+        }
+    }
+
+    // Method to find a menu item by name, ignoring case
+    public MenuItem findMenuItem(String itemName) {
+        MenuItem menuItem = menuSnapshot.find(itemName);
+        (menuItem != null ? MENU_LOOKUP_HITS : MENU_LOOKUP_MISSES).increment();
+        return menuItem;
+    }
+
+    // Method to check by identity that an item is on this restaurant's menu; unlike a lookup by name it
+    // cannot be fooled by a rename in progress
+    public boolean isOnMenu(MenuItem menuItem) {
+        return menuItem.getRestaurant() == this;
+    }
+
+    // Method to rename an item and publish a new menu version indexing it under its new name, as one step
+    void reindexMenuItem(Runnable rename) {
+        synchronized (menuLock) {
+            rename.run();
+            menuSnapshot = menuSnapshot.withItems(menuSnapshot.getItems());
+        }
+    }
+
+    // Method to publish a new menu version after an item's price, description or type has changed
+    void menuItemChanged() {
+        synchronized (menuLock) {
+            menuSnapshot = menuSnapshot.next();
+        }
     }
 
     // Method to add special offer to menu
     public void addSpecialOffer(SpecialOffer specialOffer) {
-        specialOffers.add(specialOffer);
+        SpecialOffer.updateOffers(() -> {
+            List<SpecialOffer> offers = new ArrayList<>(this.specialOffers);
+            offers.add(specialOffer);
+            this.specialOffers = Collections.unmodifiableList(offers);
+        });
+        SpecialOffer.offersChanged();
+    }
+
+    // Method to process an order, writing it to the order log if one is given
+    public Order processOrder(Customer customer, Cart cart, OrderLog orderLog) {
+        return processOrder(customer, cart, null, orderLog);
+    }
+
+    // Method to process an order whose stock may already be reserved
+    public Order processOrder(Customer customer, Cart cart, StockReservation reservation, OrderLog orderLog) {
+        long startTime = System.nanoTime();
+        try {
+            return placeOrder(customer, cart, reservation, orderLog);
+        } finally {
+            orderProcessed(startTime);
+        }
     }
 
-    // Method to process an order
-    public Order processOrder(Customer customer, Cart cart) {
-        Order order = new Order(customer, this, cart.getItems(), specialOffers);
+    private Order placeOrder(Customer customer, Cart cart, StockReservation reservation, OrderLog orderLog) {
+        IOutputSink sink = Console.getSink();
+        Order order = new Order(customer, this, cart);
+        StockReservation secured = secureStock(order, reservation, sink);
+        if (secured == null) {
+            return null;
+        }
 
-        if (canFulfillOrder(order)) {
+        if (orderLog != null) {
             try {
-                // Deduct items from inventory
+                orderLog.append(order);
+            } catch (IOException e) {
+                e.printStackTrace();
+                orderNotSaved(secured, sink);
+                return null;
+            }
+        }
+
+        confirmOrder(order, secured, sink);
+        return order;
+    }
+
+    // Method to secure the stock for an order before it is logged. A held reservation that is still live is
+    // taken over; a missing or expired one is retried once against the current stock. The result never
+    // expires, so nothing can take the stock back until the caller commits it through confirmOrder or
+    // releases it. Null, counted and reported to the customer, when the stock has run out.
+    StockReservation secureStock(Order order, StockReservation held, IOutputSink sink) {
+        StockReservation secured = held == null ? null : held.takeOver();
+        if (secured == null && canFulfillOrder(order)) {
+            // Stock taken on the spot is never queued for the expiry sweep
+            secured = takeAll(order.getItems(), Long.MAX_VALUE);
+            if (secured != null) {
+                stockSecured(secured);
+            }
+        }
+        if (secured == null) {
+            ORDERS_REJECTED_STOCK.increment();
+            sink.write("Unable to process the order due to insufficient stock.\n");
+            sink.write("-----------------------------------\n");
+        }
+        return secured;
+    }
+
+    // Method to keep the stock of an order that has been logged, count it and tell the customer
+    void confirmOrder(Order order, StockReservation secured, IOutputSink sink) {
+        secured.commit();
+        ORDERS_CONFIRMED.increment();
+
+        // Display total cost
+        sink.write("Order confirmed! Total cost: $" + Money.format(order.getTotalCost()) + "\n");
+        sink.write("-----------------------------------\n");
+    }
+
+    // Method to give back the stock of an order that could not be logged
+    void orderNotSaved(StockReservation secured, IOutputSink sink) {
+        secured.release();
+        sink.write("Unable to save the order. Please try again.\n");
+        sink.write("-----------------------------------\n");
+    }
+
+    // Method to record how long an order took from being placed to being confirmed or rejected
+    static void orderProcessed(long startTime) {
+        PROCESS_ORDER_LATENCY.record(System.nanoTime() - startTime);
+    }
+
+    // Method to process many carts in one pass; the result holds each cart's order, or null where it was rejected
+    public List<Order> processOrders(List<Customer> customers, List<Cart> carts, OrderLog orderLog) {
+        if (customers.size() != carts.size()) {
+            throw new IllegalArgumentException("Every cart needs a customer.");
+        }
+        long startTime = System.nanoTime();
+        releaseExpiredReservations();
+
+        // Demand is summed per item across the whole batch, so each counter is touched once
+        List<Order> orders = new ArrayList<>(carts.size());
+        Map<MenuItem, Integer> demand = new IdentityHashMap<>();
+        for (int i = 0; i < carts.size(); i++) {
+            Order order = new Order(customers.get(i), this, carts.get(i));
+            orders.add(order);
+            for (CartItem item : order.getItems()) {
+                demand.merge(item.getMenuItem(), item.getQuantity(), Integer::sum);
+            }
+        }
+        Map<MenuItem, Integer> granted = new IdentityHashMap<>();
+        for (Map.Entry<MenuItem, Integer> entry : demand.entrySet()) {
+            granted.put(entry.getKey(), inventory.takeUpTo(entry.getKey(), entry.getValue()));
+        }
+
+        // Carts are served in order from what was taken; a cart that does not fit is rejected whole
+        List<Order> accepted = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            if (fits(order, granted)) {
                 for (CartItem item : order.getItems()) {
-                    updateInventory(item.getMenuItem(), -item.getQuantity());
+                    granted.merge(item.getMenuItem(), -item.getQuantity(), Integer::sum);
+                }
+                accepted.add(order);
+            } else {
+                orders.set(i, null);
+            }
+        }
+
+        // Give back what no accepted cart needed
+        for (Map.Entry<MenuItem, Integer> entry : granted.entrySet()) {
+            if (entry.getValue() > 0) {
+                inventory.tryAdjust(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (orderLog != null && !accepted.isEmpty()) {
+            try {
+                orderLog.appendAll(accepted);
+            } catch (IOException e) {
+                e.printStackTrace();
+                // Nothing was saved, so every accepted order is rejected and its stock given back
+                for (int i = 0; i < orders.size(); i++) {
+                    Order order = orders.get(i);
+                    if (order != null) {
+                        for (CartItem item : order.getItems()) {
+                            inventory.tryAdjust(item.getMenuItem(), item.getQuantity());
+                        }
+                        orders.set(i, null);
+                    }
                 }
+                accepted.clear();
+            }
+        }
+        ORDERS_CONFIRMED.add(accepted.size());
+        ORDERS_REJECTED_STOCK.add(orders.size() - accepted.size());
+        PROCESS_BATCH_LATENCY.record(System.nanoTime() - startTime);
+
+        Console.println(accepted.size() + " of " + orders.size() + " orders confirmed.");
+        Console.println("-----------------------------------");
+        return orders;
+    }
+
+    // Method to check that every line of an order can be covered by the stock still granted to the batch
+    private static boolean fits(Order order, Map<MenuItem, Integer> granted) {
+        // Carts hold one line per item, so lines can be compared one at a time
+        for (CartItem item : order.getItems()) {
+            if (item.getQuantity() > granted.getOrDefault(item.getMenuItem(), 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Method to reserve the stock for every line of an order, or none of it, holding it until the reservation expires
+    public StockReservation reserveStock(Collection<CartItem> items) {
+        releaseExpiredReservations();
+        StockReservation reservation = takeAll(items, System.currentTimeMillis() + RESERVATION_TIMEOUT_MILLIS);
+        if (reservation != null) {
+            reservation.markQueued();
+            pendingReservations.add(reservation);
+        }
+        return reservation;
+    }
 
-                // Display total cost
-                System.out.println("Order confirmed! Total cost: $" + String.format("%.2f", order.getTotalCost()));
-                System.out.println("-----------------------------------");
-                return order;
+    // Method to take the stock for every line of an order, or none of it
+    private StockReservation takeAll(Collection<CartItem> items, long expiresAt) {
+        // Lines for the same item are combined so each counter is touched once
+        Map<MenuItem, Integer> demand = new IdentityHashMap<>();
+        for (CartItem item : items) {
+            demand.merge(item.getMenuItem(), item.getQuantity(), Integer::sum);
+        }
+        MenuItem[] reservedItems = demand.keySet().toArray(new MenuItem[0]);
+        int[] quantities = new int[reservedItems.length];
+        for (int i = 0; i < reservedItems.length; i++) {
+            quantities[i] = demand.get(reservedItems[i]);
+        }
 
-            } catch (IllegalArgumentException e) {
-                System.out.println("Error processing order: " + e.getMessage());
-                System.out.println("-----------------------------------");
+        for (int i = 0; i < reservedItems.length; i++) {
+            if (!inventory.tryAdjust(reservedItems[i], -quantities[i])) {
+                // Give back what this order already took
+                for (int j = 0; j < i; j++) {
+                    inventory.tryAdjust(reservedItems[j], quantities[j]);
+                }
+                RESERVATIONS_REFUSED.increment();
                 return null;
             }
+        }
+
+        RESERVATIONS_TAKEN.increment();
+        return new StockReservation(this, reservedItems, quantities, expiresAt);
+    }
+
+    // Method to note that a reservation was committed or released. Settled reservations stay where they are in the
+    // queue, since removing one from the middle means scanning it; they are dropped once they reach the head.
+    void reservationSettled(StockReservation reservation) {
+        if (reservation.isQueued()) {
+            sweep(false);
         } else {
-            System.out.println("Unable to process the order due to insufficient stock.");
-            System.out.println("-----------------------------------");
-            return null;
+            securedReservations.remove(reservation);
+        }
+    }
+
+    // Method to track stock secured for an order until it is committed or released
+    void stockSecured(StockReservation reservation) {
+        securedReservations.add(reservation);
+    }
+
+    // Method to add up the stock held by reservations that are still pending, per item. Together with the
+    // available stock this is what the restaurant has on hand.
+    public Map<MenuItem, Integer> getHeldStock() {
+        Map<MenuItem, Integer> held = new IdentityHashMap<>();
+        for (StockReservation reservation : pendingReservations) {
+            reservation.addHeldStock(held);
+        }
+        for (StockReservation reservation : securedReservations) {
+            reservation.addHeldStock(held);
+        }
+        return held;
+    }
+
+    // Method to return the stock of abandoned reservations to the inventory
+    public void releaseExpiredReservations() {
+        sweep(true);
+    }
+
+    // Method to drop settled reservations from the head of the queue, and expired ones too when asked. Reservations
+    // share one timeout, so the queue is in expiry order and the sweep stops at the first live one. A thread that
+    // finds another one sweeping leaves the work to it.
+    private void sweep(boolean releaseExpired) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            StockReservation head;
+            while ((head = pendingReservations.peek()) != null) {
+                if (head.isPending() && (!releaseExpired || !head.isExpired(now))) {
+                    break;
+                }
+                pendingReservations.poll();
+                if (head.release()) {
+                    RESERVATIONS_EXPIRED.increment();
+                }
+            }
+        } finally {
+            sweeping.set(false);
         }
     }
 
     // Method to check if the order can be fulfilled based on inventory
     private boolean canFulfillOrder(Order order) {
-        for (CartItem item : order.getItems()) {
-            if (!isItemAvailable(item.getMenuItem(), item.getQuantity())) {
-                return false;
+        long startTime = System.nanoTime();
+        try {
+            for (CartItem item : order.getItems()) {
+                if (!isItemAvailable(item.getMenuItem(), item.getQuantity())) {
+                    return false;
+                }
             }
+            return true;
+        } finally {
+            FULFIL_CHECK_LATENCY.record(System.nanoTime() - startTime);
         }
-        return true;
     }
 
     // Method to check if the availability of the item
     public boolean isItemAvailable(MenuItem item, int quantity) {
-        return stock.getOrDefault(item, 0) >= quantity;
+        return inventory.isAvailable(item, quantity);
     }
 
     // Method to update the inventory
     public void updateInventory(MenuItem item, int quantity) {
-        int currentStock = stock.getOrDefault(item, 0);
-        int newStock = currentStock + quantity;
-        if (newStock < 0) {
+        INVENTORY_UPDATES.increment();
+        if (!inventory.tryAdjust(item, quantity)) {
             throw new IllegalArgumentException("Cannot have negative stock.");
         }
-        stock.put(item, newStock);
     }
 
     // Method to display list of restaurants
-    public static void displayRestaurants(List<Restaurant> restaurants) {
-        System.out.println("Please choose a restaurant or exit:");
-        for (int i = 0; i < restaurants.size(); i++) {
-            System.out.println((i + 1) + ". " + restaurants.get(i).getRestaurantName());
+    public static void displayRestaurants(RestaurantRegistry restaurants) {
+        Console.println("Please choose a restaurant or exit:");
+        for (Restaurant restaurant : restaurants.list()) {
+            Console.println(restaurant.getRestaurantId() + ". " + restaurant.getRestaurantName());
         }
-        System.out.println("-----------------------------------");
+        Console.println("-----------------------------------");
     }
 
     // Method to get the selected restaurant choice and its menu or exit
-    public static Restaurant getRestaurantChoiceAndMenu(Integer option, List<Restaurant> restaurants) {
-        if (option > 0 && option <= restaurants.size()) {
-            Restaurant selectedRestaurant = restaurants.get(option - 1);
-
-            System.out.println("Welcome to " + selectedRestaurant.getRestaurantName() + "!");
-            System.out.println("-----------------------------------");
-            System.out.println("Menu:");
+    public static Restaurant getRestaurantChoiceAndMenu(Integer option, RestaurantRegistry restaurants) {
+        Restaurant selectedRestaurant = restaurants.get(option);
+        if (selectedRestaurant != null) {
+            Console.println("Welcome to " + selectedRestaurant.getRestaurantName() + "!");
+            Console.println("-----------------------------------");
+            Console.println("Menu:");
             for (MenuItem menuItem : selectedRestaurant.getMenu()) {
-                System.out.println(menuItem.getItemName() + " - RM" + menuItem.getPrice());
+                Console.println(menuItem.getItemName() + " - RM" + Money.format(menuItem.getPrice()));
             }
-            System.out.println("-----------------------------------");
+            Console.println("-----------------------------------");
 
             return selectedRestaurant;
         } else {
-            System.out.println("Invalid choice, please try again.");
-            System.out.println("-----------------------------------");
+            Console.println("Invalid choice, please try again.");
+            Console.println("-----------------------------------");
         }
         return null;
     }
@@ -0,0 +1,139 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Restaurants keyed by a stable ID and indexed by name, ignoring case. Adding,
+// removing and looking up a restaurant never scans the others, and readers
+// never block writers.
+public class RestaurantRegistry {
+    private final Map<Integer, Restaurant> restaurantsById;
+    private final Map<String, Restaurant> restaurantsByName;
+    private final AtomicInteger lastRestaurantId;
+    private final AtomicLong modifications;
+    private volatile Listing listing;
+
+    // Constructor
+    public RestaurantRegistry() {
+        this.restaurantsById = new ConcurrentHashMap<>();
+        this.restaurantsByName = new ConcurrentHashMap<>();
+        this.lastRestaurantId = new AtomicInteger();
+        this.modifications = new AtomicLong();
+    }
+
+    // Method to add a restaurant only if no other restaurant has its name; assigns an ID if it has none
+    public boolean add(Restaurant restaurant) {
+        if (restaurantsByName.putIfAbsent(CustomerMap.normalizeName(restaurant.getRestaurantName()), restaurant) != null) {
+            return false;
+        }
+        int restaurantId = restaurant.getRestaurantId();
+        if (restaurantId <= 0) {
+            restaurantId = lastRestaurantId.incrementAndGet();
+            restaurant.setRestaurantId(restaurantId);
+        } else {
+            lastRestaurantId.accumulateAndGet(restaurantId, Math::max);
+        }
+        restaurantsById.put(restaurantId, restaurant);
+        restaurant.setRegistry(this);
+        modifications.incrementAndGet();
+        return true;
+    }
+
+    // Method to look up a restaurant by ID; null if there is none
+    public Restaurant get(int restaurantId) {
+        return restaurantsById.get(restaurantId);
+    }
+
+    // Method to look up a restaurant by name, ignoring case; null if there is none
+    public Restaurant getByName(String name) {
+        return restaurantsByName.get(CustomerMap.normalizeName(name));
+    }
+
+    // Method to check if a name is taken, ignoring case
+    public boolean containsName(String name) {
+        return restaurantsByName.containsKey(CustomerMap.normalizeName(name));
+    }
+
+    // Method to check if this exact restaurant is registered
+    public boolean contains(Restaurant restaurant) {
+        return restaurantsById.get(restaurant.getRestaurantId()) == restaurant;
+    }
+
+    // Method to remove a restaurant; false if it was not registered
+    public boolean remove(Restaurant restaurant) {
+        if (!restaurantsById.remove(restaurant.getRestaurantId(), restaurant)) {
+            return false;
+        }
+        restaurantsByName.remove(CustomerMap.normalizeName(restaurant.getRestaurantName()), restaurant);
+        restaurant.setRegistry(null);
+        modifications.incrementAndGet();
+        return true;
+    }
+
+    // Method to put a new restaurant in place of an old one under the old one's ID
+    public boolean replace(Restaurant oldRestaurant, Restaurant newRestaurant) {
+        String oldName = CustomerMap.normalizeName(oldRestaurant.getRestaurantName());
+        String newName = CustomerMap.normalizeName(newRestaurant.getRestaurantName());
+        if (!contains(oldRestaurant)) {
+            return false;
+        }
+        if (!newName.equals(oldName) && restaurantsByName.putIfAbsent(newName, newRestaurant) != null) {
+            return false;
+        }
+        newRestaurant.setRestaurantId(oldRestaurant.getRestaurantId());
+        if (!restaurantsById.replace(oldRestaurant.getRestaurantId(), oldRestaurant, newRestaurant)) {
+            restaurantsByName.remove(newName, newRestaurant);
+            return false;
+        }
+        if (newName.equals(oldName)) {
+            restaurantsByName.put(newName, newRestaurant);
+        } else {
+            restaurantsByName.remove(oldName, oldRestaurant);
+        }
+        oldRestaurant.setRegistry(null);
+        newRestaurant.setRegistry(this);
+        modifications.incrementAndGet();
+        return true;
+    }
+
+    public int size() {
+        return restaurantsById.size();
+    }
+
+    // Method to list the restaurants in ID order; the list is rebuilt only after the registry changes
+    public List<Restaurant> list() {
+        Listing current = listing;
+        long version = modifications.get();
+        if (current == null || current.version != version) {
+            List<Restaurant> restaurants = new ArrayList<>(restaurantsById.values());
+            restaurants.sort(Comparator.comparingInt(Restaurant::getRestaurantId));
+            current = new Listing(version, Collections.unmodifiableList(restaurants));
+            listing = current;
+        }
+        return current.restaurants;
+    }
+
+    // Method to move a restaurant's name index entry when its name changes
+    void renameRestaurant(Restaurant restaurant, String oldName) {
+        if (oldName != null) {
+            restaurantsByName.remove(CustomerMap.normalizeName(oldName), restaurant);
+        }
+        restaurantsByName.put(CustomerMap.normalizeName(restaurant.getRestaurantName()), restaurant);
+        modifications.incrementAndGet();
+    }
+
+    // Restaurants in ID order and the registry version they were listed from
+    private static class Listing {
+        private final long version;
+        private final List<Restaurant> restaurants;
+
+        Listing(long version, List<Restaurant> restaurants) {
+            this.version = version;
+            this.restaurants = restaurants;
+        }
+    }
+}
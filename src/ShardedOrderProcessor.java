@@ -0,0 +1,282 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Partitioned execution of order processing. Every restaurant belongs to one
+// shard, chosen by its ID, and each shard runs on a single thread of its own.
+// Orders and restocks queued here for a restaurant run one at a time on its
+// shard, so they never contend with each other, and shards run side by side
+// on separate cores. A shard takes everything waiting in its queue at once
+// and writes the orders among it to the order log in one batch, so each shard
+// forces the log once per batch rather than once per order.
+//
+// The shard is not the only writer of a restaurant's stock: cart reservations
+// and their expiry sweeps, the order pipeline and the admin's restocking all
+// write it from their own threads. The stock counters are atomic, so this is
+// safe, but only work queued here is serialised.
+//
+// The console application places orders through OrderPipeline; this processor
+// is used by LoadGenerator's --shards option, to compare processing on shards
+// with processing on the customers' own threads.
+//
+// Offers are read across shards, for example by the offers banner. Offer
+// changes go through SpecialOffer.updateOffers, which lets readers detect a
+// change in progress and retry, so they always see whole changes.
+public class ShardedOrderProcessor {
+    private static final int LOG_BATCH = 64;
+
+    private final Shard[] shards;
+    private final OrderLog orderLog;
+
+    // Constructor
+    public ShardedOrderProcessor(int shardCount, OrderLog orderLog) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("There must be at least one shard.");
+        }
+        this.orderLog = orderLog;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    // Method to size the shards to the machine, one per available core
+    public static ShardedOrderProcessor perCore(OrderLog orderLog) {
+        return new ShardedOrderProcessor(Runtime.getRuntime().availableProcessors(), orderLog);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Method to find the shard that owns a restaurant
+    public int shardOf(Restaurant restaurant) {
+        return Math.floorMod(restaurant.getRestaurantId(), shards.length);
+    }
+
+    // Method to process an order on the restaurant's shard; the order is priced from the cart straight away,
+    // so the cart can change once this returns
+    public CompletableFuture<Order> processOrder(Customer customer, Restaurant restaurant, Cart cart) {
+        OrderTask task = new OrderTask(new Order(customer, restaurant, cart), Console.getSink());
+        shards[shardOf(restaurant)].submit(task);
+        return task.result;
+    }
+
+    // Method to process a batch of carts for one restaurant on its shard
+    public CompletableFuture<List<Order>> processOrders(Restaurant restaurant, List<Customer> customers, List<Cart> carts) {
+        List<Customer> batchCustomers = new ArrayList<>(customers);
+        List<Cart> batchCarts = new ArrayList<>(carts);
+        return onShard(restaurant, () -> restaurant.processOrders(batchCustomers, batchCarts, orderLog));
+    }
+
+    // Method to change an item's stock on the restaurant's shard
+    public CompletableFuture<Void> updateInventory(Restaurant restaurant, MenuItem item, int quantity) {
+        return onShard(restaurant, () -> {
+            restaurant.updateInventory(item, quantity);
+            return null;
+        });
+    }
+
+    private <T> CompletableFuture<T> onShard(Restaurant restaurant, Supplier<T> work) {
+        CallTask<T> task = new CallTask<>(work, Console.getSink());
+        shards[shardOf(restaurant)].submit(task);
+        return task.result;
+    }
+
+    // Method to finish the queued work and stop the shard threads; later work is refused
+    public void close() {
+        for (Shard shard : shards) {
+            shard.close();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Marks the end of a shard's queue
+    private static final Task END = new Task(Console.NO_OP) {
+    };
+
+    // Work queued on a shard
+    private abstract static class Task {
+        final IOutputSink sink;
+
+        Task(IOutputSink sink) {
+            this.sink = sink;
+        }
+    }
+
+    // An order waiting for its stock and a place in the order log
+    private static class OrderTask extends Task {
+        final Order order;
+        final CompletableFuture<Order> result = new CompletableFuture<>();
+        final long startTime = System.nanoTime();
+        StockReservation secured;
+
+        OrderTask(Order order, IOutputSink sink) {
+            super(sink);
+            this.order = order;
+        }
+    }
+
+    // Any other work, run with the caller's console sink
+    private static class CallTask<T> extends Task {
+        final Supplier<T> work;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        CallTask(Supplier<T> work, IOutputSink sink) {
+            super(sink);
+            this.work = work;
+        }
+
+        void run() {
+            IOutputSink shardSink = Console.getSink();
+            Console.setSink(sink);
+            try {
+                result.complete(work.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                // Hands the shard its own sink back, flushing the caller's
+                Console.setSink(shardSink);
+            }
+        }
+    }
+
+    // A queue and the single thread that drains it
+    private class Shard {
+        private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+        private final Thread thread;
+        private final LongAdder processed;
+        private volatile boolean closed;
+
+        Shard(int shard) {
+            this.processed = Metrics.counter("shard." + shard + ".processed");
+            Metrics.gauge("shard." + shard + ".queue", queue::size);
+            this.thread = new Thread(this::drain, "order-shard-" + shard);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void submit(Task task) {
+            if (closed) {
+                throw new IllegalStateException("The order processor is closed.");
+            }
+            queue.add(task);
+        }
+
+        // Method to stop the thread once everything queued so far is done
+        void close() {
+            closed = true;
+            queue.add(END);
+        }
+
+        private void drain() {
+            List<Task> batch = new ArrayList<>(LOG_BATCH);
+            try {
+                while (true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, LOG_BATCH - 1);
+                    // The end marker is always the last task ever queued
+                    boolean ended = batch.get(batch.size() - 1) == END;
+                    if (ended) {
+                        batch.remove(batch.size() - 1);
+                    }
+                    handle(batch);
+                    processed.add(batch.size());
+                    batch.clear();
+                    if (ended) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Method to run a batch in queue order, holding back the orders' confirmations until they are logged together
+        private void handle(List<Task> batch) {
+            List<OrderTask> secured = new ArrayList<>();
+            for (Task task : batch) {
+                if (task instanceof OrderTask orderTask) {
+                    if (secure(orderTask)) {
+                        secured.add(orderTask);
+                    }
+                } else {
+                    ((CallTask<?>) task).run();
+                }
+            }
+            if (!secured.isEmpty()) {
+                logAndConfirm(secured);
+            }
+        }
+
+        // Method to take the stock for an order; false if it was rejected
+        private boolean secure(OrderTask task) {
+            Restaurant restaurant = task.order.getRestaurant();
+            try {
+                task.secured = restaurant.secureStock(task.order, null, task.sink);
+            } catch (RuntimeException e) {
+                finish(task, e);
+                return false;
+            }
+            if (task.secured == null) {
+                finish(task, null);
+                return false;
+            }
+            return true;
+        }
+
+        private void logAndConfirm(List<OrderTask> tasks) {
+            if (orderLog != null) {
+                List<Order> orders = new ArrayList<>(tasks.size());
+                for (OrderTask task : tasks) {
+                    orders.add(task.order);
+                }
+                try {
+                    orderLog.appendAll(orders);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    for (OrderTask task : tasks) {
+                        task.order.getRestaurant().orderNotSaved(task.secured, task.sink);
+                        finish(task, null);
+                    }
+                    return;
+                }
+            }
+            for (OrderTask task : tasks) {
+                try {
+                    task.order.getRestaurant().confirmOrder(task.order, task.secured, task.sink);
+                } catch (RuntimeException e) {
+                    task.secured.release();
+                    finish(task, e);
+                    continue;
+                }
+                task.sink.flush();
+                Restaurant.orderProcessed(task.startTime);
+                task.result.complete(task.order);
+            }
+        }
+
+        // Method to complete a rejected or failed order
+        private void finish(OrderTask task, RuntimeException failure) {
+            task.sink.flush();
+            Restaurant.orderProcessed(task.startTime);
+            if (failure != null) {
+                task.result.completeExceptionally(failure);
+            } else {
+                task.result.complete(null);
+            }
+        }
+    }
+}
@@ -1,13 +1,40 @@
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 public class SpecialOffer {
+    // Bumped whenever the offers banner could read differently
+    private static final AtomicLong BANNER_VERSION = new AtomicLong();
+    private static volatile Banner banner;
+    // Odd while an offer change is being applied, so readers of several restaurants can tell they saw a torn state
+    private static final AtomicLong OFFER_SEQUENCE = new AtomicLong();
+    private static final Object OFFER_WRITE_LOCK = new Object();
+
     private String offerDescription;
     private double discount;
+    private String category;
+    private int priority;
+    private boolean stackable;
+    // Bumped by every change that can alter a discount, so compiled promotion engines can tell they are stale
+    private volatile int revision;
 
-    // Constructor
+    // Constructor for an offer on every item
     public SpecialOffer(String offerDescription, double discount) {
+        this(offerDescription, discount, null, 0, true);
+    }
+
+    // Constructor for an offer on one cuisine or beverage type
+    public SpecialOffer(String offerDescription, double discount, String category) {
+        this(offerDescription, discount, category, 0, true);
+    }
+
+    // Constructor with priority and stacking rules
+    public SpecialOffer(String offerDescription, double discount, String category, int priority, boolean stackable) {
         this.offerDescription = offerDescription;
         this.discount = discount;
+        this.category = category;
+        this.priority = priority;
+        this.stackable = stackable;
     }
 
     // Getters and Setters
@@ -16,32 +43,135 @@ public class SpecialOffer {
     }
     public void setOfferDescription(String offerDescription) {
         this.offerDescription = offerDescription;
+        offersChanged();
     }
     public double getDiscount() {
         return discount;
     }
     public void setDiscount(double discount) {
         this.discount = discount;
+        revision++;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+    public void setCategory(String category) {
+        this.category = category;
+        revision++;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+    public void setPriority(int priority) {
+        this.priority = priority;
+        revision++;
+    }
+
+    public boolean isStackable() {
+        return stackable;
+    }
+    public void setStackable(boolean stackable) {
+        this.stackable = stackable;
+        revision++;
+    }
+
+    int getRevision() {
+        return revision;
+    }
+
+    public long getDiscountBasisPoints() {
+        return Math.round(discount * 100);
+    }
+
+    // Method to turn the offer's category into a test on menu items; no category means every item
+    public Predicate<MenuItem> compileCondition() {
+        String target = category;
+        if (target == null || target.isBlank()) {
+            return menuItem -> true;
+        }
+        return menuItem -> menuItem instanceof DrinkItem drinkItem && target.equalsIgnoreCase(drinkItem.getBeverageType())
+                || menuItem instanceof FoodItem foodItem && target.equalsIgnoreCase(foodItem.getCuisineType());
     }
 
     // Method to apply the offer
-    public double applyOffer(double cost) {
-        return cost - (cost * (discount / 100.0));
+    public long applyOffer(long cost) {
+        return Money.percentOff(cost, discount);
+    }
+
+    // Method to mark the offers banner as out of date
+    public static void offersChanged() {
+        BANNER_VERSION.incrementAndGet();
+    }
+
+    // Method to change the offers of one or more restaurants so that no reader sees only part of the change
+    public static void updateOffers(Runnable change) {
+        if (Thread.holdsLock(OFFER_WRITE_LOCK)) {
+            change.run(); // part of a change already being applied
+            return;
+        }
+        synchronized (OFFER_WRITE_LOCK) {
+            OFFER_SEQUENCE.incrementAndGet();
+            try {
+                change.run();
+            } finally {
+                OFFER_SEQUENCE.incrementAndGet();
+            }
+        }
     }
 
-    // Method to display the offer
-    public void displayOffers(List<Restaurant> restaurants) {
-        System.out.println("Current Special Offers:");
+    // Method to display the offer, rebuilding the banner only after the offers have changed
+    public static void displayOffers(RestaurantRegistry registry) {
+        List<Restaurant> restaurants = registry.list();
+        Banner current = banner;
+        long version = BANNER_VERSION.get();
+        if (current == null || current.version != version || current.restaurants != restaurants) {
+            current = new Banner(version, restaurants, buildConsistentBanner(restaurants));
+            banner = current;
+        }
+        Console.print(current.text);
+    }
+
+    // Method to build the banner from offers that were all read between two changes
+    private static String buildConsistentBanner(List<Restaurant> restaurants) {
+        while (true) {
+            long sequence = OFFER_SEQUENCE.get();
+            if ((sequence & 1) == 0) {
+                String text = buildBanner(restaurants);
+                if (OFFER_SEQUENCE.get() == sequence) {
+                    return text;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static String buildBanner(List<Restaurant> restaurants) {
+        StringBuilder text = new StringBuilder("Current Special Offers:\n");
         boolean hasOffers = false;
         for (Restaurant restaurant : restaurants) {
             for (SpecialOffer offer : restaurant.getSpecialOffers()) {
-                System.out.println("- " + restaurant.getRestaurantName() + ": " + offer.getOfferDescription());
+                text.append("- ").append(restaurant.getRestaurantName()).append(": ").append(offer.getOfferDescription()).append('\n');
                 hasOffers = true;
             }
         }
         if (!hasOffers) {
-            System.out.println("No special offers available at the moment.");
+            text.append("No special offers available at the moment.\n");
+        }
+        return text.append("-----------------------------------\n").toString();
+    }
+
+    // Rendered banner and the version of the offers it was rendered from
+    private static class Banner {
+        private final long version;
+        private final List<Restaurant> restaurants;
+        private final String text;
+
+        Banner(long version, List<Restaurant> restaurants, String text) {
+            this.version = version;
+            this.restaurants = restaurants;
+            this.text = text;
         }
-        System.out.println("-----------------------------------");
     }
 }
@@ -0,0 +1,100 @@
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Stock taken from a restaurant's inventory for one order, held until the
+// order is committed, released, or the reservation expires.
+public class StockReservation {
+    private static final int PENDING = 0;
+    private static final int COMMITTED = 1;
+    private static final int RELEASED = 2;
+
+    private final Restaurant restaurant;
+    private final MenuItem[] items;
+    private final int[] quantities;
+    private final long expiresAt;
+    private final AtomicInteger state;
+    // Set before the reservation is queued for the expiry sweep; never set for stock taken on the spot
+    private boolean queued;
+
+    // Constructor
+    StockReservation(Restaurant restaurant, MenuItem[] items, int[] quantities, long expiresAt) {
+        this.restaurant = restaurant;
+        this.items = items;
+        this.quantities = quantities;
+        this.expiresAt = expiresAt;
+        this.state = new AtomicInteger(PENDING);
+    }
+
+    public Restaurant getRestaurant() {
+        return restaurant;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isPending() {
+        return state.get() == PENDING;
+    }
+
+    public boolean isExpired(long now) {
+        return now > expiresAt;
+    }
+
+    void markQueued() {
+        queued = true;
+    }
+
+    boolean isQueued() {
+        return queued;
+    }
+
+    // Method to keep the reserved stock for good; fails once the reservation is released or expired
+    public boolean commit() {
+        if (isExpired(System.currentTimeMillis())) {
+            release();
+            return false;
+        }
+        if (!state.compareAndSet(PENDING, COMMITTED)) {
+            return false;
+        }
+        restaurant.reservationSettled(this);
+        return true;
+    }
+
+    // Method to move the reserved stock into a new reservation that never expires and is not swept; null once
+    // this one is committed, released or expired. The caller then owns the stock outright until it commits or
+    // releases the new reservation.
+    StockReservation takeOver() {
+        // Tracked before this one is settled, so the stock is never missing from the restaurant's held stock
+        StockReservation secured = new StockReservation(restaurant, items, quantities, Long.MAX_VALUE);
+        restaurant.stockSecured(secured);
+        if (!commit()) {
+            restaurant.reservationSettled(secured);
+            return null;
+        }
+        return secured;
+    }
+
+    // Method to add this reservation's stock to a per-item total, if it still holds any
+    void addHeldStock(Map<MenuItem, Integer> held) {
+        if (!isPending()) {
+            return;
+        }
+        for (int i = 0; i < items.length; i++) {
+            held.merge(items[i], quantities[i], Integer::sum);
+        }
+    }
+
+    // Method to give the reserved stock back; only the first release or commit takes effect
+    public boolean release() {
+        if (!state.compareAndSet(PENDING, RELEASED)) {
+            return false;
+        }
+        for (int i = 0; i < items.length; i++) {
+            restaurant.getInventory().tryAdjust(items[i], quantities[i]);
+        }
+        restaurant.reservationSettled(this);
+        return true;
+    }
+}